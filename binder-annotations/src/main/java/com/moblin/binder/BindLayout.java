@@ -0,0 +1,21 @@
+package com.moblin.binder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose BindView fields are wired from the given layout. The
+ * binder processor generates a class named after the target, e.g.
+ * Outer_Inner_Binder for Outer.Inner, with a static bind(target, root)
+ * method, where root is the root view inflated from the layout.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface BindLayout {
+    /**
+     * Name of the layout resource, without the extension.
+     */
+    String value();
+}
@@ -0,0 +1,20 @@
+package com.moblin.binder;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field that holds the view with the given ID of the layout named
+ * by the enclosing class's BindLayout. The field must not be private or
+ * static, and its type must be assignable from the view's class.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface BindView {
+    /**
+     * Name of the view ID, without the "@+id/" prefix.
+     */
+    String value();
+}
@@ -0,0 +1,227 @@
+package com.moblin.binder.compiler;
+
+import com.moblin.binder.BindLayout;
+import com.moblin.binder.BindView;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a binder for every class annotated with BindLayout. The binder
+ * assigns the BindView fields by walking the child indices that lead to
+ * each view in the layout, so no view is searched for at runtime. Missing
+ * IDs, views of incompatible types and inaccessible fields are compile
+ * errors. Needs the "binder.resDir" option: the res directory to read the
+ * layouts from. Every qualified variant of a layout, such as layout-land,
+ * is inflated by the same binder, so a variant whose views differ from the
+ * default layout is a compile error too.
+ */
+public class BinderProcessor extends AbstractProcessor {
+    private static final String OPTION_RES_DIR = "binder.resDir";
+    private static final String BINDER_SUFFIX = "_Binder";
+    private static final String LAYOUT_DIR = "layout";
+    // Packages that LayoutInflater looks up unqualified tags in.
+    private static final String[] VIEW_PACKAGES = {"android.widget.", "android.view.",
+            "android.webkit."};
+
+    private final Map<String, LayoutTree> mLayouts = new HashMap<String, LayoutTree>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(BindLayout.class.getCanonicalName());
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(OPTION_RES_DIR);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(BindLayout.class)) {
+            TypeElement type = (TypeElement) element;
+            String layout = type.getAnnotation(BindLayout.class).value();
+            LayoutTree tree = loadLayout(type, layout);
+            if (tree != null) {
+                writeBinder(type, layout, tree);
+            }
+        }
+        return true;
+    }
+
+    /** Private methods */
+
+    private LayoutTree loadLayout(TypeElement type, String layout) {
+        if (mLayouts.containsKey(layout)) {
+            return mLayouts.get(layout);
+        }
+        String resDir = processingEnv.getOptions().get(OPTION_RES_DIR);
+        if (resDir == null) {
+            error(type, "Option " + OPTION_RES_DIR + " is not set");
+            return null;
+        }
+        LayoutTree tree = null;
+        try {
+            tree = new LayoutTree(new File(new File(resDir, LAYOUT_DIR), layout + ".xml"));
+            for (File variant : variantsOf(new File(resDir), layout)) {
+                String difference = tree.difference(new LayoutTree(variant));
+                if (difference != null) {
+                    error(type, "Layout " + layout + " in " + variant.getParentFile().getName()
+                            + " doesn't match the default: " + difference);
+                    tree = null;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            error(type, "Can't read layout " + layout + ": " + e.getMessage());
+            tree = null;
+        }
+        mLayouts.put(layout, tree);
+        return tree;
+    }
+
+    private static File[] variantsOf(File resDir, String layout) {
+        // Qualified layout directories, e.g. layout-land or layout-sw600dp-v21.
+        File[] dirs = resDir.listFiles();
+        if (dirs == null) {
+            return new File[0];
+        }
+        Arrays.sort(dirs);
+        int count = 0;
+        File[] variants = new File[dirs.length];
+        for (File dir : dirs) {
+            File file = new File(dir, layout + ".xml");
+            if (dir.getName().startsWith(LAYOUT_DIR + "-") && file.isFile()) {
+                variants[count++] = file;
+            }
+        }
+        return Arrays.copyOf(variants, count);
+    }
+
+    private void writeBinder(TypeElement type, String layout, LayoutTree tree) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type)
+                .getQualifiedName().toString();
+        String targetName = type.getQualifiedName().toString();
+        String binderName = binderName(type);
+        StringBuilder body = new StringBuilder();
+        boolean valid = true;
+
+        for (Element member : type.getEnclosedElements()) {
+            BindView bindView = member.getAnnotation(BindView.class);
+            if (member.getKind() != ElementKind.FIELD || bindView == null) {
+                continue;
+            }
+            if (member.getModifiers().contains(Modifier.PRIVATE)
+                    || member.getModifiers().contains(Modifier.STATIC)) {
+                error(member, "@BindView fields must not be private or static");
+                valid = false;
+                continue;
+            }
+            LayoutTree.ViewNode node = tree.find(bindView.value());
+            if (node == null) {
+                error(member, "Layout " + layout + " has no view with ID " + bindView.value());
+                valid = false;
+                continue;
+            }
+            if (!isAssignable(member.asType(), node.mTag)) {
+                error(member, "View " + bindView.value() + " of layout " + layout + " is a "
+                        + node.mTag + ", not a " + member.asType());
+                valid = false;
+                continue;
+            }
+            body.append("        target.").append(member.getSimpleName())
+                    .append(" = (").append(member.asType()).append(") ")
+                    .append(pathExpression(node.mPath)).append(";\n");
+        }
+        if (!valid) {
+            return;
+        }
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                    packageName + "." + binderName, type);
+            Writer writer = file.openWriter();
+            try {
+                writer.write("package " + packageName + ";\n\n"
+                        + "import android.view.View;\n"
+                        + "import android.view.ViewGroup;\n\n"
+                        + "/**\n"
+                        + " * Generated from layout " + layout + ", do not edit.\n"
+                        + " */\n"
+                        + "final class " + binderName + " {\n"
+                        + "    private " + binderName + "() {\n"
+                        + "    }\n\n"
+                        + "    static void bind(" + targetName + " target, View root) {\n"
+                        + body
+                        + "    }\n"
+                        + "}\n");
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            error(type, "Can't write " + binderName + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isAssignable(TypeMirror fieldType, String tag) {
+        TypeElement viewType = null;
+        if (tag.contains(".")) {
+            viewType = processingEnv.getElementUtils().getTypeElement(tag);
+        } else {
+            for (String prefix : VIEW_PACKAGES) {
+                viewType = processingEnv.getElementUtils().getTypeElement(prefix + tag);
+                if (viewType != null) {
+                    break;
+                }
+            }
+        }
+        // Classes that aren't on the compile classpath can't be checked.
+        return viewType == null || processingEnv.getTypeUtils().isAssignable(
+                viewType.asType(), fieldType);
+    }
+
+    private static String pathExpression(int[] path) {
+        String expression = "root";
+        for (int index : path) {
+            expression = "((ViewGroup) " + expression + ").getChildAt(" + index + ")";
+        }
+        return expression;
+    }
+
+    private static String binderName(TypeElement type) {
+        // Outer.Inner becomes Outer_Inner_Binder.
+        String name = type.getSimpleName().toString();
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing.getKind().isClass() || enclosing.getKind().isInterface()) {
+            name = enclosing.getSimpleName() + "_" + name;
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name + BINDER_SUFFIX;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,145 @@
+package com.moblin.binder.compiler;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Views of a layout file that have IDs, each with its path from the root:
+ * the child indices to follow with ViewGroup.getChildAt(). Only layouts
+ * inflated as they are written can be wired this way, so include and merge
+ * tags are rejected.
+ */
+class LayoutTree {
+    private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+    // Elements that configure their parent and don't become views.
+    private static final List<String> NON_VIEW_TAGS = Arrays.asList("requestFocus", "tag");
+
+    /**
+     * View with an ID.
+     */
+    static class ViewNode {
+        final String mTag;
+        final int[] mPath;
+
+        ViewNode(String tag, int[] path) {
+            mTag = tag;
+            mPath = path;
+        }
+    }
+
+    private final Map<String, ViewNode> mViews = new HashMap<String, ViewNode>();
+
+    /**
+     * Parses a layout file.
+     * @param file - layout file
+     * @throws IOException - if the file can't be read or is not a supported layout
+     */
+    LayoutTree(File file) throws IOException {
+        Element root;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            root = factory.newDocumentBuilder().parse(file).getDocumentElement();
+        } catch (ParserConfigurationException e) {
+            throw new IOException(e);
+        } catch (SAXException e) {
+            throw new IOException("Malformed layout " + file + ": " + e.getMessage());
+        }
+        visit(root, new ArrayList<Integer>());
+    }
+
+    /**
+     * Looks up a view by ID name.
+     * @param id - ID name, without the "@+id/" prefix
+     * @return view, or null if the layout has no view with the ID
+     */
+    ViewNode find(String id) {
+        return mViews.get(id);
+    }
+
+    /**
+     * Compares the views with IDs to those of another variant of the layout.
+     * @param other - layout to compare to
+     * @return first difference found, or null if the views have the same IDs,
+     *         tags and paths
+     */
+    String difference(LayoutTree other) {
+        for (Map.Entry<String, ViewNode> entry : mViews.entrySet()) {
+            String id = entry.getKey();
+            ViewNode node = entry.getValue();
+            ViewNode otherNode = other.mViews.get(id);
+            if (otherNode == null) {
+                return "no view with ID " + id;
+            }
+            if (!node.mTag.equals(otherNode.mTag)) {
+                return "view " + id + " is a " + otherNode.mTag + ", not a " + node.mTag;
+            }
+            if (!Arrays.equals(node.mPath, otherNode.mPath)) {
+                return "view " + id + " is at child path " + Arrays.toString(otherNode.mPath)
+                        + ", not " + Arrays.toString(node.mPath);
+            }
+        }
+        for (String id : other.mViews.keySet()) {
+            if (!mViews.containsKey(id)) {
+                return "extra view with ID " + id;
+            }
+        }
+        return null;
+    }
+
+    /** Private methods */
+
+    private void visit(Element element, List<Integer> path) throws IOException {
+        String tag = element.getTagName();
+        if ("include".equals(tag) || "merge".equals(tag)) {
+            throw new IOException("Unsupported <" + tag + "> in layout");
+        }
+        String id = idName(element.getAttributeNS(ANDROID_NS, "id"));
+        if (id != null) {
+            if (mViews.containsKey(id)) {
+                throw new IOException("Duplicate view ID " + id);
+            }
+            int[] indices = new int[path.size()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = path.get(i);
+            }
+            mViews.put(id, new ViewNode("view".equals(tag) ?
+                    element.getAttribute("class") : tag, indices));
+        }
+
+        NodeList children = element.getChildNodes();
+        int index = 0;
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child.getNodeType() != Node.ELEMENT_NODE
+                    || NON_VIEW_TAGS.contains(((Element) child).getTagName())) {
+                continue;
+            }
+            path.add(index++);
+            visit((Element) child, path);
+            path.remove(path.size() - 1);
+        }
+    }
+
+    private static String idName(String value) {
+        if (value.startsWith("@+id/")) {
+            return value.substring(5);
+        } else if (value.startsWith("@id/")) {
+            return value.substring(4);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,215 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.v7.widget.LinearLayoutManager;
+import android.util.Log;
+
+import com.moblin.expansionpanelsdemo.data.MappedOptionCatalog;
+import com.moblin.expansionpanelsdemo.data.OptionCatalog;
+import com.moblin.expansionpanelsdemo.data.SelectionStorage;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Runs PanelBenchmark against the base adapter with a given number of
+ * panels, with and without lazy content, and against TripOptionsAdapter,
+ * with the adapters' own metrics of the toggles, then writes the results as
+ * JSON to files/benchmark.json and to the log, and finishes. The optional
+ * bind budget is set on the adapter without lazy content, the only one that
+ * defers binds. Debug builds only:
+ *
+ * adb shell am start -W -n com.moblin.expansionpanelsdemo/.gui.BenchmarkActivity \
+ *     --ei panels 500 --ei warmup 10 --ei iterations 30 [--ei bind_budget_us 2000]
+ * adb shell run-as com.moblin.expansionpanelsdemo cat files/benchmark.json
+ */
+public class BenchmarkActivity extends Activity {
+    private static final String TAG = "PanelBenchmark";
+    private static final String RESULTS_FILE = "benchmark.json";
+    private static final String EXTRA_PANELS = "panels";
+    private static final String EXTRA_WARMUP = "warmup";
+    private static final String EXTRA_ITERATIONS = "iterations";
+    private static final String EXTRA_BIND_BUDGET = "bind_budget_us";
+
+    private CountingRecyclerView mRecyclerView;
+    private PanelBenchmark mBenchmark;
+    private int mPanelCount;
+    private long mBindBudgetNs = -1;
+    private JSONObject mResults = new JSONObject();
+
+    /** Activity methods */
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mPanelCount = getIntent().getIntExtra(EXTRA_PANELS, 500);
+        int warmup = getIntent().getIntExtra(EXTRA_WARMUP, 10);
+        int iterations = getIntent().getIntExtra(EXTRA_ITERATIONS, 30);
+        if (getIntent().hasExtra(EXTRA_BIND_BUDGET)) {
+            mBindBudgetNs = getIntent().getIntExtra(EXTRA_BIND_BUDGET, 0) * 1000L;
+        }
+
+        mRecyclerView = new CountingRecyclerView(this);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        setContentView(mRecyclerView);
+        mBenchmark = new PanelBenchmark(mRecyclerView, warmup, iterations);
+        try {
+            mResults.put("device", Build.MODEL)
+                    .put("sdk", Build.VERSION.SDK_INT)
+                    .put("panels", mPanelCount)
+                    .put("warmup", warmup)
+                    .put("iterations", iterations);
+            if (mBindBudgetNs >= 0) {
+                mResults.put(EXTRA_BIND_BUDGET, mBindBudgetNs / 1000);
+            }
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+
+        // Run once the window is laid out, so the panels have a width.
+        mRecyclerView.post(new Runnable() {
+            @Override
+            public void run() {
+                measureAdapter("adapter", new BenchmarkAdapterFactory(true), new Runnable() {
+                    @Override
+                    public void run() {
+                        // Collapsed panels hold their details and actions too.
+                        measureAdapter("adapter_eager", new BenchmarkAdapterFactory(false),
+                                new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        measureTripAdapter();
+                                    }
+                                });
+                    }
+                });
+            }
+        });
+    }
+
+    /** Private methods */
+
+    private void measureAdapter(final String name, final AdapterFactory factory,
+                                final Runnable next) {
+        try {
+            JSONObject result = new JSONObject()
+                    .put("create", mBenchmark.measureCreate(factory.create()))
+                    .put("bind_collapsed", mBenchmark.measureBind(factory.create(), false))
+                    .put("bind_expanded", mBenchmark.measureBind(factory.create(), true));
+            mResults.put(name, result);
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+
+        // Toggling needs a laid out list of a fresh adapter.
+        final ExpansionPanelsAdapter adapter = factory.create();
+        final MetricsRecorder metrics = new MetricsRecorder();
+        adapter.setMetricsListener(metrics);
+        mRecyclerView.setAdapter(adapter);
+        mRecyclerView.post(new Runnable() {
+            @Override
+            public void run() {
+                mBenchmark.measureToggle(adapter, new PanelBenchmark.Callback() {
+                    @Override
+                    public void onFinished(JSONObject toggle) {
+                        try {
+                            // Hit rate of the content cache, to size it.
+                            ContentViewPool pool = adapter.getContentViewPool();
+                            mResults.getJSONObject(name)
+                                    .put("toggle", toggle)
+                                    .put("content_pool", new JSONObject()
+                                            .put("hits", pool.getHitCount())
+                                            .put("misses", pool.getMissCount())
+                                            .put("evictions", pool.getEvictionCount()))
+                                    .put("metrics", metrics.toJson());
+                        } catch (JSONException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        next.run();
+                    }
+                });
+            }
+        });
+    }
+
+    private void measureTripAdapter() {
+        // Loaded once, so the adapters publish their panels right away.
+        MappedOptionCatalog.loadAsset(getAssets(), TripOptionsAdapter.CATALOG_ASSET, 0,
+                new MappedOptionCatalog.LoadCallback() {
+                    @Override
+                    public void onCatalogLoaded(OptionCatalog catalog, boolean complete) {
+                        measureAdapter("trip_options_adapter", new TripAdapterFactory(catalog),
+                                new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        publishResults();
+                                    }
+                                });
+                    }
+                });
+    }
+
+    private void publishResults() {
+        String json = mResults.toString();
+        Log.i(TAG, json);
+        FileOutputStream out = null;
+        try {
+            out = openFileOutput(RESULTS_FILE, MODE_PRIVATE);
+            out.write(json.getBytes("UTF-8"));
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write " + RESULTS_FILE, e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to close " + RESULTS_FILE, e);
+                }
+            }
+        }
+        finish();
+    }
+
+    private interface AdapterFactory {
+        ExpansionPanelsAdapter create();
+    }
+
+    private class BenchmarkAdapterFactory implements AdapterFactory {
+        private final boolean mLazyContent;
+
+        BenchmarkAdapterFactory(boolean lazyContent) {
+            mLazyContent = lazyContent;
+        }
+
+        @Override
+        public ExpansionPanelsAdapter create() {
+            ExpansionPanelsAdapter adapter = new BenchmarkAdapter(getResources(), mPanelCount);
+            adapter.setLazyContentEnabled(mLazyContent);
+            if (!mLazyContent && mBindBudgetNs >= 0) {
+                adapter.setDeferredBindBudget(mBindBudgetNs);
+            }
+            return adapter;
+        }
+    }
+
+    private class TripAdapterFactory implements AdapterFactory {
+        private final OptionCatalog mCatalog;
+
+        TripAdapterFactory(OptionCatalog catalog) {
+            mCatalog = catalog;
+        }
+
+        @Override
+        public ExpansionPanelsAdapter create() {
+            // Keeps the selections away from the app's own file.
+            return new TripOptionsAdapter(getResources(), mCatalog, new SelectionStorage(
+                    new File(getCacheDir(), "benchmark_selections")), null);
+        }
+    }
+}
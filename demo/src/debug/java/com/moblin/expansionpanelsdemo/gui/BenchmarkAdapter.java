@@ -0,0 +1,120 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import android.content.res.Resources;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.RadioButton;
+import android.widget.RadioGroup;
+import android.widget.TextView;
+
+import com.moblin.binder.BindLayout;
+import com.moblin.binder.BindView;
+import com.moblin.expansionpanelsdemo.R;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter with any number of panels, that uses the demo's content layouts
+ * with trivial binding, so the benchmarks measure the base adapter.
+ */
+class BenchmarkAdapter extends ExpansionPanelsAdapter {
+    private static final int OPTION_COUNT = 3;
+
+    BenchmarkAdapter(Resources res, int panelCount) {
+        super(res);
+        setHasStableIds(true);
+        List<Panel> panels = new ArrayList<Panel>(panelCount);
+        for (int i = 0; i < panelCount; i++) {
+            panels.add(new Panel(i, "Setting " + i, "Value " + i));
+        }
+        submitPanels(panels);
+    }
+
+    @Override
+    protected RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType,
+                                                         ViewHolderType holderType,
+                                                         ViewHolder masterViewHolder) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        switch (holderType) {
+            case SUMMARY:
+                return new SummaryViewHolder(inflater.inflate(
+                        R.layout.simple_summary, parent, false));
+            case DETAILS:
+                return new DetailsViewHolder(inflater.inflate(
+                        R.layout.simple_details, parent, false));
+            case ACTIONS:
+                return new RecyclerView.ViewHolder(inflater.inflate(
+                        R.layout.simple_actions, parent, false)) {};
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    protected void onBindViewHolder(RecyclerView.ViewHolder holder, int position,
+                                    ViewHolderType holderType) {
+        Panel panel = getPanel(position);
+        if (holder instanceof SummaryViewHolder) {
+            ((SummaryViewHolder) holder).mSetting.setText(panel.mName);
+            ((SummaryViewHolder) holder).mValue.setText(panel.mValue);
+        } else if (holder instanceof DetailsViewHolder) {
+            List<RadioButton> rows = ((DetailsViewHolder) holder).mRows;
+            for (int i = 0; i < rows.size(); i++) {
+                rows.get(i).setText(panel.mValue);
+            }
+        }
+    }
+
+    @BindLayout("simple_summary")
+    static class SummaryViewHolder extends RecyclerView.ViewHolder {
+        @BindView("tv_setting") TextView mSetting;
+        @BindView("tv_value") TextView mValue;
+
+        SummaryViewHolder(View itemView) {
+            super(itemView);
+            BenchmarkAdapter_SummaryViewHolder_Binder.bind(this, itemView);
+        }
+    }
+
+    @BindLayout("simple_details")
+    static class DetailsViewHolder extends RecyclerView.ViewHolder {
+        @BindView("rg_options") RadioGroup mOptions;
+        final List<RadioButton> mRows = new ArrayList<RadioButton>(OPTION_COUNT);
+
+        DetailsViewHolder(View itemView) {
+            super(itemView);
+            BenchmarkAdapter_DetailsViewHolder_Binder.bind(this, itemView);
+            LayoutInflater inflater = LayoutInflater.from(itemView.getContext());
+            for (int i = 0; i < OPTION_COUNT; i++) {
+                RadioButton row = (RadioButton) inflater.inflate(
+                        R.layout.option_row, mOptions, false);
+                mOptions.addView(row);
+                mRows.add(row);
+            }
+        }
+    }
+
+    private static class Panel implements PanelModel {
+        final long mId;
+        final String mName, mValue;
+
+        Panel(long id, String name, String value) {
+            mId = id;
+            mName = name;
+            mValue = value;
+        }
+
+        @Override
+        public long getPanelId() {
+            return mId;
+        }
+
+        @Override
+        public boolean hasSameContent(PanelModel other) {
+            return mValue.equals(((Panel) other).mValue);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * RecyclerView that counts its measure and layout passes.
+ */
+class CountingRecyclerView extends RecyclerView {
+    private int mMeasureCount, mLayoutCount;
+
+    CountingRecyclerView(Context context) {
+        super(context);
+    }
+
+    int getMeasureCount() {
+        return mMeasureCount;
+    }
+
+    int getLayoutCount() {
+        return mLayoutCount;
+    }
+
+    void resetCounts() {
+        mMeasureCount = 0;
+        mLayoutCount = 0;
+    }
+
+    /** View methods */
+
+    @Override
+    protected void onMeasure(int widthSpec, int heightSpec) {
+        mMeasureCount++;
+        super.onMeasure(widthSpec, heightSpec);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        mLayoutCount++;
+        super.onLayout(changed, l, t, r, b);
+    }
+}
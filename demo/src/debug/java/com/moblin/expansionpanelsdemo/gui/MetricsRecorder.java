@@ -0,0 +1,111 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import com.moblin.expansionpanelsdemo.gui.ExpansionPanelsAdapter.ViewHolderType;
+import com.moblin.expansionpanelsdemo.util.LatencyHistogram;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+/**
+ * Metrics listener that counts the adapter's creates, binds, animations and
+ * notifications, for the benchmark results.
+ */
+class MetricsRecorder implements PanelMetricsListener {
+    private static final ViewHolderType[] HOLDER_TYPES = ViewHolderType.values();
+    private static final NotifyType[] NOTIFY_TYPES = NotifyType.values();
+
+    private int mPanelsCreated;
+    private final int[] mContentCreated = new int[HOLDER_TYPES.length];
+    private final int[] mContentBound = new int[HOLDER_TYPES.length];
+    private int mExpansions, mCollapses;
+    private final int[] mNotifications = new int[NOTIFY_TYPES.length];
+    private final LatencyHistogram mExpandLatency = new LatencyHistogram();
+
+    int getContentCreatedCount(ViewHolderType holderType) {
+        return mContentCreated[holderType.ordinal()];
+    }
+
+    int getContentBoundCount(ViewHolderType holderType) {
+        return mContentBound[holderType.ordinal()];
+    }
+
+    void reset() {
+        mPanelsCreated = 0;
+        mExpansions = 0;
+        mCollapses = 0;
+        for (int i = 0; i < HOLDER_TYPES.length; i++) {
+            mContentCreated[i] = 0;
+            mContentBound[i] = 0;
+        }
+        for (int i = 0; i < NOTIFY_TYPES.length; i++) {
+            mNotifications[i] = 0;
+        }
+        mExpandLatency.reset();
+    }
+
+    /**
+     * Returns the counts recorded since the last reset.
+     * @return metrics with panels_created, content_created, content_bound,
+     *         expansions, collapses, expand_latency_p50_ms and notifications
+     * @throws JSONException - never, the values are finite
+     */
+    JSONObject toJson() throws JSONException {
+        JSONObject created = new JSONObject();
+        JSONObject bound = new JSONObject();
+        for (ViewHolderType holderType : HOLDER_TYPES) {
+            String key = holderType.name().toLowerCase(Locale.US);
+            created.put(key, getContentCreatedCount(holderType));
+            bound.put(key, getContentBoundCount(holderType));
+        }
+        JSONObject notifications = new JSONObject();
+        for (NotifyType type : NOTIFY_TYPES) {
+            notifications.put(type.name().toLowerCase(Locale.US), mNotifications[type.ordinal()]);
+        }
+        return new JSONObject()
+                .put("panels_created", mPanelsCreated)
+                .put("content_created", created)
+                .put("content_bound", bound)
+                .put("expansions", mExpansions)
+                .put("collapses", mCollapses)
+                .put("expand_latency_p50_ms", mExpandLatency.getPercentileNs(50) / 1e6)
+                .put("notifications", notifications);
+    }
+
+    /** Panel Metrics Listener methods */
+
+    @Override
+    public void onPanelCreated(long durationNs) {
+        mPanelsCreated++;
+    }
+
+    @Override
+    public void onContentCreated(ViewHolderType holderType, long durationNs) {
+        mContentCreated[holderType.ordinal()]++;
+    }
+
+    @Override
+    public void onContentBound(ViewHolderType holderType, long durationNs) {
+        mContentBound[holderType.ordinal()]++;
+    }
+
+    @Override
+    public void onExpansionAnimated(boolean expanded, long durationNs) {
+        if (expanded) {
+            mExpansions++;
+        } else {
+            mCollapses++;
+        }
+    }
+
+    @Override
+    public void onExpandLatency(long panelId, long latencyNs) {
+        mExpandLatency.record(latencyNs);
+    }
+
+    @Override
+    public void onNotify(NotifyType type, int itemCount) {
+        mNotifications[type.ordinal()]++;
+    }
+}
@@ -0,0 +1,200 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import android.os.Debug;
+import android.support.v7.widget.RecyclerView;
+import android.view.Choreographer;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+/**
+ * Benchmarks of the adapter's hot paths: creating panels, binding them
+ * collapsed and expanded, and toggling a panel until its animation ends.
+ * Every benchmark runs its warm-up iterations first, then reports the
+ * median of the measured iterations. Should be used on the main thread.
+ */
+class PanelBenchmark {
+    private static final int OPS_PER_SAMPLE = 20;
+
+    /**
+     * Receives the results of the asynchronous benchmarks.
+     */
+    interface Callback {
+        void onFinished(JSONObject result);
+    }
+
+    private final CountingRecyclerView mRecyclerView;
+    private final int mWarmup, mIterations;
+
+    /**
+     * Package-private constructor
+     * @param recyclerView - laid out RecyclerView to run the benchmarks in
+     * @param warmup - number of discarded iterations
+     * @param iterations - number of measured iterations
+     */
+    PanelBenchmark(CountingRecyclerView recyclerView, int warmup, int iterations) {
+        mRecyclerView = recyclerView;
+        mWarmup = warmup;
+        mIterations = iterations;
+    }
+
+    /**
+     * Measures creation of panels, without content. The adapter must not be
+     * attached to RecyclerView.
+     * @param adapter - adapter to benchmark
+     * @return result with ns_per_op
+     * @throws JSONException - never, the values are finite
+     */
+    JSONObject measureCreate(ExpansionPanelsAdapter adapter) throws JSONException {
+        for (int i = 0; i < mWarmup; i++) {
+            createSample(adapter);
+        }
+        long[] samples = new long[mIterations];
+        for (int i = 0; i < mIterations; i++) {
+            samples[i] = createSample(adapter);
+        }
+        return new JSONObject().put("ns_per_op", median(samples) / OPS_PER_SAMPLE);
+    }
+
+    /**
+     * Measures binding of all panels to one view-holder, through all the
+     * content view-holder types. The adapter must not be attached to
+     * RecyclerView.
+     * @param adapter - adapter to benchmark
+     * @param expanded - true to bind the panels expanded, in MULTIPLE mode
+     * @return result with ns_per_op and allocs_per_op
+     * @throws JSONException - never, the values are finite
+     */
+    JSONObject measureBind(ExpansionPanelsAdapter adapter, boolean expanded)
+            throws JSONException {
+        if (expanded) {
+            adapter.setExpansionMode(ExpansionPanelsAdapter.ExpansionMode.MULTIPLE);
+            adapter.expandAll();
+        } else {
+            adapter.collapseAll();
+        }
+        RecyclerView.ViewHolder holder = adapter.createViewHolder(mRecyclerView, 0);
+        for (int i = 0; i < mWarmup; i++) {
+            bindSample(adapter, holder, i);
+        }
+        long[] samples = new long[mIterations];
+        for (int i = 0; i < mIterations; i++) {
+            samples[i] = bindSample(adapter, holder, i);
+        }
+
+        // Counted in a separate pass, the counting slows down allocations.
+        //noinspection deprecation
+        Debug.startAllocCounting();
+        //noinspection deprecation
+        Debug.resetThreadAllocCount();
+        for (int i = 0; i < mIterations; i++) {
+            bindSample(adapter, holder, i);
+        }
+        //noinspection deprecation
+        int allocs = Debug.getThreadAllocCount();
+        //noinspection deprecation
+        Debug.stopAllocCounting();
+
+        return new JSONObject()
+                .put("ns_per_op", median(samples) / OPS_PER_SAMPLE)
+                .put("allocs_per_op", (double) allocs / (mIterations * OPS_PER_SAMPLE));
+    }
+
+    /**
+     * Measures toggling panels, from the notification until the layout and
+     * the animation are done, with the measure and layout passes it takes.
+     * The adapter must be attached to the RecyclerView and laid out.
+     * @param adapter - adapter to benchmark
+     * @param callback - receives the result with ms_per_op, frames_per_op,
+     *                 measure_passes_per_op and layout_passes_per_op
+     */
+    void measureToggle(final ExpansionPanelsAdapter adapter, final Callback callback) {
+        final int panels = Math.min(adapter.getItemCount(), mRecyclerView.getChildCount());
+        final long[] times = new long[mIterations];
+        final int total = mWarmup + mIterations;
+        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+            private int mIteration, mIterationFrames;
+            private int mFrames, mMeasures, mLayouts;
+            private long mStart;
+
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                if (mStart != 0) {
+                    mIterationFrames++;
+                    if (mRecyclerView.isAnimating() || mRecyclerView.isLayoutRequested()) {
+                        Choreographer.getInstance().postFrameCallback(this);
+                        return;
+                    }
+                    if (mIteration >= mWarmup) {
+                        times[mIteration - mWarmup] = System.nanoTime() - mStart;
+                        mFrames += mIterationFrames;
+                        mMeasures += mRecyclerView.getMeasureCount();
+                        mLayouts += mRecyclerView.getLayoutCount();
+                    }
+                    mIteration++;
+                }
+                if (mIteration == total) {
+                    finish();
+                    return;
+                }
+
+                // Toggle the next panel, collapsing the previous one in SINGLE mode.
+                int position = (mIteration / 2) % Math.max(panels, 1);
+                mRecyclerView.resetCounts();
+                mIterationFrames = 0;
+                mStart = System.nanoTime();
+                adapter.setExpanded(position, !adapter.isExpanded(position));
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+
+            private void finish() {
+                try {
+                    double ops = mIterations;
+                    callback.onFinished(new JSONObject()
+                            .put("ms_per_op", median(times) / 1e6)
+                            .put("frames_per_op", mFrames / ops)
+                            .put("measure_passes_per_op", mMeasures / ops)
+                            .put("layout_passes_per_op", mLayouts / ops));
+                } catch (JSONException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the median of samples, as the benchmarks report it.
+     * @param samples - measured samples
+     * @return median
+     */
+    static double median(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return (sorted.length % 2 == 1) ?
+                sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2.0;
+    }
+
+    /** Private methods */
+
+    private long createSample(ExpansionPanelsAdapter adapter) {
+        long start = System.nanoTime();
+        for (int i = 0; i < OPS_PER_SAMPLE; i++) {
+            adapter.createViewHolder(mRecyclerView, 0);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long bindSample(ExpansionPanelsAdapter adapter, RecyclerView.ViewHolder holder,
+                            int sample) {
+        int count = adapter.getItemCount();
+        long start = System.nanoTime();
+        for (int i = 0; i < OPS_PER_SAMPLE; i++) {
+            adapter.bindViewHolder((ExpansionPanelsAdapter.ViewHolder) holder,
+                    (sample * OPS_PER_SAMPLE + i) % count);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,45 @@
+package com.moblin.expansionpanelsdemo.data;
+
+import com.moblin.expansionpanelsdemo.util.Assert;
+
+/**
+ * Option catalog held in arrays.
+ */
+public class ArrayOptionCatalog implements OptionCatalog {
+    private final String[] mSettingNames;
+    private final String[][] mOptions;
+
+    /**
+     * Public constructor
+     * @param settingNames - names of the settings
+     * @param options - options of each setting
+     */
+    public ArrayOptionCatalog(String[] settingNames, String[][] options) {
+        Assert.isTrue(settingNames.length == options.length,
+                "Settings and options differ in length");
+        mSettingNames = settingNames;
+        mOptions = options;
+    }
+
+    /** Option Catalog methods */
+
+    @Override
+    public int getSettingCount() {
+        return mSettingNames.length;
+    }
+
+    @Override
+    public String getSettingName(int setting) {
+        return mSettingNames[setting];
+    }
+
+    @Override
+    public int getOptionCount(int setting) {
+        return mOptions[setting].length;
+    }
+
+    @Override
+    public String getOption(int setting, int option) {
+        return mOptions[setting][option];
+    }
+}
@@ -0,0 +1,294 @@
+package com.moblin.expansionpanelsdemo.data;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import com.moblin.expansionpanelsdemo.util.AppExecutors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Option catalog read from a line-delimited UTF-8 file: a line per setting
+ * name, followed by a line per option, indented with a tab. Empty lines and
+ * lines starting with '#' are skipped. The file is memory-mapped and only
+ * the offsets of its lines are indexed up front; names and options are
+ * decoded when asked for, so loading creates no strings. The options of
+ * recently read settings stay decoded, so rebinding and scrolling don't
+ * decode them again. Immutable once loaded, so it can be read from any
+ * thread.
+ */
+public class MappedOptionCatalog implements OptionCatalog {
+    private static final String TAG = "MappedOptionCatalog";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte OPTION_INDENT = '\t';
+    private static final byte COMMENT = '#';
+    // Settings whose options stay decoded, a few screens of expanded panels.
+    private static final int OPTION_CACHE_SIZE = 32;
+
+    /**
+     * Receives the loaded catalog.
+     */
+    public interface LoadCallback {
+        /**
+         * Called on the main thread. If the file has more settings than the
+         * first page, it's called for the first page as soon as it's indexed,
+         * and again for the whole catalog.
+         * @param catalog - loaded catalog, empty if the file can't be read
+         * @param complete - false for the first page
+         */
+        void onCatalogLoaded(OptionCatalog catalog, boolean complete);
+    }
+
+    private final ByteBuffer mBuffer;
+    private final int mSettingCount;
+    // Offsets of the lines that hold text, and the ends of their text.
+    private final int[] mLineStarts, mLineEnds;
+    // Line of each setting's name, its options follow up to the next setting.
+    private final int[] mSettingLines;
+    private final String[] mSettingNames;
+    // Direct-mapped by setting index. Races only decode a line twice.
+    private final DecodedOptions[] mOptionCache = new DecodedOptions[OPTION_CACHE_SIZE];
+
+    /**
+     * Private constructor
+     * @param buffer - file contents
+     * @param settingCount - number of settings
+     * @param lineStarts - start offsets of the text lines
+     * @param lineEnds - end offsets of the text lines
+     * @param settingLines - line of each setting's name, and the line after
+     *                     the last setting's options
+     */
+    private MappedOptionCatalog(ByteBuffer buffer, int settingCount, int[] lineStarts,
+                                int[] lineEnds, int[] settingLines) {
+        mBuffer = buffer;
+        mSettingCount = settingCount;
+        mLineStarts = lineStarts;
+        mLineEnds = lineEnds;
+        mSettingLines = settingLines;
+        mSettingNames = new String[settingCount];
+    }
+
+    /**
+     * Loads a catalog from an asset on the disk I/O thread. The asset should
+     * be stored uncompressed to be mapped, otherwise it's read into memory.
+     * @param assets - app assets
+     * @param name - asset file name
+     * @param firstPageSize - number of settings to deliver ahead of the rest
+     * @param callback - receives the catalog
+     */
+    public static void loadAsset(final AssetManager assets, final String name,
+                                 final int firstPageSize, final LoadCallback callback) {
+        AppExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer buffer;
+                try {
+                    buffer = mapAsset(assets, name);
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to read asset " + name, e);
+                    buffer = ByteBuffer.allocate(0);
+                }
+                index(buffer, firstPageSize, callback);
+            }
+        });
+    }
+
+    /**
+     * Loads a catalog from a local file on the disk I/O thread.
+     * @param file - catalog file
+     * @param firstPageSize - number of settings to deliver ahead of the rest
+     * @param callback - receives the catalog
+     */
+    public static void loadFile(final File file, final int firstPageSize,
+                                final LoadCallback callback) {
+        AppExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer buffer;
+                try {
+                    buffer = map(new FileInputStream(file), 0, file.length());
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to read " + file, e);
+                    buffer = ByteBuffer.allocate(0);
+                }
+                index(buffer, firstPageSize, callback);
+            }
+        });
+    }
+
+    /** Option Catalog methods */
+
+    @Override
+    public int getSettingCount() {
+        return mSettingCount;
+    }
+
+    @Override
+    public String getSettingName(int setting) {
+        // Names are shown and compared often, so they're kept once decoded.
+        String name = mSettingNames[setting];
+        if (name == null) {
+            name = decodeLine(mSettingLines[setting]);
+            mSettingNames[setting] = name;
+        }
+        return name;
+    }
+
+    @Override
+    public int getOptionCount(int setting) {
+        return mSettingLines[setting + 1] - mSettingLines[setting] - 1;
+    }
+
+    @Override
+    public String getOption(int setting, int option) {
+        if (option < 0 || option >= getOptionCount(setting)) {
+            throw new IndexOutOfBoundsException("No option " + option + " of setting " + setting);
+        }
+        DecodedOptions decoded = mOptionCache[setting % OPTION_CACHE_SIZE];
+        if (decoded == null || decoded.mSetting != setting) {
+            decoded = new DecodedOptions(setting, getOptionCount(setting));
+            mOptionCache[setting % OPTION_CACHE_SIZE] = decoded;
+        }
+        String text = decoded.mOptions[option];
+        if (text == null) {
+            text = decodeLine(mSettingLines[setting] + 1 + option);
+            decoded.mOptions[option] = text;
+        }
+        return text;
+    }
+
+    /** Private methods */
+
+    private String decodeLine(int line) {
+        // Absolute reads only, the buffer is shared between threads.
+        int start = mLineStarts[line];
+        byte[] bytes = new byte[mLineEnds[line] - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = mBuffer.get(start + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    private static ByteBuffer mapAsset(AssetManager assets, String name) throws IOException {
+        AssetFileDescriptor fd;
+        try {
+            fd = assets.openFd(name);
+        } catch (FileNotFoundException e) {
+            // Compressed assets can't be mapped, read the whole file.
+            InputStream in = assets.open(name);
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] chunk = new byte[8192];
+                int count;
+                while ((count = in.read(chunk)) != -1) {
+                    out.write(chunk, 0, count);
+                }
+                return ByteBuffer.wrap(out.toByteArray());
+            } finally {
+                in.close();
+            }
+        }
+        return map(fd.createInputStream(), fd.getStartOffset(), fd.getLength());
+    }
+
+    private static ByteBuffer map(FileInputStream in, long offset, long length)
+            throws IOException {
+        try {
+            // The mapping stays valid after the channel is closed.
+            FileChannel channel = in.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void index(ByteBuffer buffer, int firstPageSize,
+                              final LoadCallback callback) {
+        int[] lineStarts = new int[64];
+        int[] lineEnds = new int[64];
+        int[] settingLines = new int[16];
+        int lineCount = 0;
+        int settingCount = 0;
+
+        int limit = buffer.limit();
+        int start = 0;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+
+            if (end > start && buffer.get(start) != COMMENT) {
+                boolean option = buffer.get(start) == OPTION_INDENT;
+                if (option && settingCount == 0) {
+                    // An option of no setting, the file is malformed.
+                    Log.w(TAG, "Option before the first setting at offset " + start);
+                    settingCount = 0;
+                    lineCount = 0;
+                    break;
+                }
+                if (!option) {
+                    if (settingCount == firstPageSize && firstPageSize > 0) {
+                        // The first page is complete, deliver it ahead of the rest.
+                        // Its lines are not written again, only appended to.
+                        settingLines[settingCount] = lineCount;
+                        deliver(new MappedOptionCatalog(buffer, settingCount,
+                                lineStarts, lineEnds, Arrays.copyOf(settingLines,
+                                settingCount + 1)), false, callback);
+                    }
+                    if (settingCount + 1 >= settingLines.length) {
+                        settingLines = Arrays.copyOf(settingLines, settingLines.length * 2);
+                    }
+                    settingLines[settingCount++] = lineCount;
+                }
+                if (lineCount == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                    lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+                }
+                lineStarts[lineCount] = option ? start + 1 : start;
+                lineEnds[lineCount++] = end;
+            }
+            start = next;
+        }
+        settingLines[settingCount] = lineCount;
+        deliver(new MappedOptionCatalog(buffer, settingCount, lineStarts, lineEnds,
+                settingLines), true, callback);
+    }
+
+    private static void deliver(final OptionCatalog catalog, final boolean complete,
+                                final LoadCallback callback) {
+        AppExecutors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onCatalogLoaded(catalog, complete);
+            }
+        });
+    }
+
+    /**
+     * Options of a setting, decoded as they're read.
+     */
+    private static class DecodedOptions {
+        final int mSetting;
+        final String[] mOptions;
+
+        DecodedOptions(int setting, int optionCount) {
+            mSetting = setting;
+            mOptions = new String[optionCount];
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.moblin.expansionpanelsdemo.data;
+
+/**
+ * Catalog of settings, each with its own list of options. Settings and
+ * options are addressed by their indices.
+ */
+public interface OptionCatalog {
+    /**
+     * Returns the number of settings.
+     * @return number of settings
+     */
+    int getSettingCount();
+
+    /**
+     * Returns the name of a setting.
+     * @param setting - setting index
+     * @return setting name
+     */
+    String getSettingName(int setting);
+
+    /**
+     * Returns the number of options of a setting.
+     * @param setting - setting index
+     * @return number of options
+     */
+    int getOptionCount(int setting);
+
+    /**
+     * Returns an option of a setting.
+     * @param setting - setting index
+     * @param option - option index
+     * @return option label
+     */
+    String getOption(int setting, int option);
+}
@@ -0,0 +1,294 @@
+package com.moblin.expansionpanelsdemo.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prefix index over the words of the setting names and option labels of a
+ * catalog. A query matches the settings that have, for each of its words,
+ * a word in the name or in an option starting with it. A query that
+ * extends the previous one only re-checks the settings the previous one
+ * matched, against the words of each setting. Immutable once
+ * built, so it can be queried from any thread. Building takes time
+ * proportional to the catalog size and should be done off the main thread.
+ */
+public class OptionIndex {
+    private static final int[] NO_POSTINGS = new int[0];
+
+    /**
+     * Settings matched by a query. Pass it to the next search, so a query
+     * that extends this one only checks the settings matched here.
+     */
+    public static class Result {
+        private final String[] mTerms;
+        private final BitSet mMatches;
+        private final BitSet mOptionMatches;
+
+        Result(String[] terms, BitSet matches, BitSet optionMatches) {
+            mTerms = terms;
+            mMatches = matches;
+            mOptionMatches = optionMatches;
+        }
+
+        /**
+         * Checks whether a setting matched.
+         * @param setting - setting index
+         * @return true if matched
+         */
+        public boolean matches(int setting) {
+            return mMatches.get(setting);
+        }
+
+        /**
+         * Checks whether a setting matched the last query word in an option,
+         * i.e. it has an option that the user is typing.
+         * @param setting - setting index
+         * @return true if an option matched
+         */
+        public boolean matchesOption(int setting) {
+            return mOptionMatches.get(setting);
+        }
+
+        /**
+         * Returns the first matched setting from an index on, to iterate
+         * over the matches without checking every setting.
+         * @param from - setting index to start at
+         * @return setting index, or -1 if no setting from there on matched
+         */
+        public int nextMatch(int from) {
+            return mMatches.nextSetBit(from);
+        }
+
+        /**
+         * Returns the first setting from an index on that matched the last
+         * query word in an option.
+         * @param from - setting index to start at
+         * @return setting index, or -1 if no setting from there on matched
+         */
+        public int nextOptionMatch(int from) {
+            return mOptionMatches.nextSetBit(from);
+        }
+
+        /**
+         * Returns the number of matched settings.
+         * @return number of settings
+         */
+        public int getMatchCount() {
+            return mMatches.cardinality();
+        }
+    }
+
+    private final int mSettingCount;
+    private final String[] mWords;
+    // Sorted settings per word, for all its occurrences and for options only.
+    private final int[][] mPostings;
+    private final int[][] mOptionPostings;
+    // Sorted words per setting, for all its words and for its options only.
+    private final int[][] mSettingWords;
+    private final int[][] mSettingOptionWords;
+
+    /**
+     * Builds the index of a catalog.
+     * @param catalog - catalog to index
+     */
+    public OptionIndex(OptionCatalog catalog) {
+        mSettingCount = catalog.getSettingCount();
+        Map<String, PostingsBuilder> postings = new HashMap<String, PostingsBuilder>();
+        for (int setting = 0; setting < mSettingCount; setting++) {
+            addWords(postings, catalog.getSettingName(setting), setting, false);
+            for (int option = 0; option < catalog.getOptionCount(setting); option++) {
+                addWords(postings, catalog.getOption(setting, option), setting, true);
+            }
+        }
+
+        // Sorted, so the words with a prefix are a contiguous range.
+        mWords = postings.keySet().toArray(new String[postings.size()]);
+        Arrays.sort(mWords);
+        mPostings = new int[mWords.length][];
+        mOptionPostings = new int[mWords.length][];
+        IntList[] settingWords = new IntList[mSettingCount];
+        IntList[] settingOptionWords = new IntList[mSettingCount];
+        for (int setting = 0; setting < mSettingCount; setting++) {
+            settingWords[setting] = new IntList();
+            settingOptionWords[setting] = new IntList();
+        }
+        for (int i = 0; i < mWords.length; i++) {
+            PostingsBuilder builder = postings.get(mWords[i]);
+            mPostings[i] = builder.mAll.toArray();
+            mOptionPostings[i] = builder.mOptions.toArray();
+            // Words are visited in order, so the lists of the settings are sorted.
+            for (int setting : mPostings[i]) {
+                settingWords[setting].add(i);
+            }
+            for (int setting : mOptionPostings[i]) {
+                settingOptionWords[setting].add(i);
+            }
+        }
+        mSettingWords = new int[mSettingCount][];
+        mSettingOptionWords = new int[mSettingCount][];
+        for (int setting = 0; setting < mSettingCount; setting++) {
+            mSettingWords[setting] = settingWords[setting].toArray();
+            mSettingOptionWords[setting] = settingOptionWords[setting].toArray();
+        }
+    }
+
+    /**
+     * Finds the settings that match a query. If the query extends the query
+     * of the previous result (the user typed more), only the settings of the
+     * previous result are checked, each against its own words, and only for
+     * the query words that changed.
+     * @param query - words to look for, case-insensitive
+     * @param previous - result of the previous query, or null
+     * @return settings that match, all settings for a blank query
+     */
+    public Result search(String query, Result previous) {
+        String[] terms = split(query);
+        BitSet matches = new BitSet(mSettingCount);
+        int firstChanged = 0;
+        boolean narrowing = previous != null && extendsTerms(terms, previous.mTerms);
+        if (narrowing) {
+            // The words before the last previous one haven't changed.
+            matches.or(previous.mMatches);
+            firstChanged = Math.max(previous.mTerms.length - 1, 0);
+        } else {
+            matches.set(0, mSettingCount);
+        }
+
+        BitSet optionMatches = new BitSet(mSettingCount);
+        for (int t = firstChanged; t < terms.length && !matches.isEmpty(); t++) {
+            boolean last = t == terms.length - 1;
+            // The words starting with the term are a contiguous range.
+            int from = lowerBound(terms[t]);
+            int to = prefixEnd(from, terms[t]);
+            if (narrowing) {
+                for (int s = matches.nextSetBit(0); s >= 0; s = matches.nextSetBit(s + 1)) {
+                    if (!hasWordIn(mSettingWords[s], from, to)) {
+                        matches.clear(s);
+                    } else if (last && hasWordIn(mSettingOptionWords[s], from, to)) {
+                        optionMatches.set(s);
+                    }
+                }
+                continue;
+            }
+            BitSet termMatches = new BitSet(mSettingCount);
+            for (int i = from; i < to; i++) {
+                setAll(termMatches, mPostings[i]);
+                if (last) {
+                    setAll(optionMatches, mOptionPostings[i]);
+                }
+            }
+            matches.and(termMatches);
+        }
+        optionMatches.and(matches);
+        return new Result(terms, matches, optionMatches);
+    }
+
+    /** Private methods */
+
+    private static void addWords(Map<String, PostingsBuilder> postings, String text,
+                                 int setting, boolean option) {
+        for (String word : split(text)) {
+            PostingsBuilder builder = postings.get(word);
+            if (builder == null) {
+                builder = new PostingsBuilder();
+                postings.put(word, builder);
+            }
+            builder.mAll.add(setting);
+            if (option) {
+                builder.mOptions.add(setting);
+            }
+        }
+    }
+
+    private static String[] split(String text) {
+        String normalized = text.toLowerCase(Locale.getDefault()).trim();
+        return normalized.isEmpty() ? new String[0] : normalized.split("[^\\p{L}\\p{N}]+");
+    }
+
+    private static boolean extendsTerms(String[] terms, String[] previousTerms) {
+        if (previousTerms.length == 0 || terms.length < previousTerms.length) {
+            return false;
+        }
+        int last = previousTerms.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (!terms[i].equals(previousTerms[i])) {
+                return false;
+            }
+        }
+        return terms[last].startsWith(previousTerms[last]);
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = mWords.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mWords[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int prefixEnd(int from, String prefix) {
+        // Words from "from" on start with the prefix up to the returned index.
+        int low = from;
+        int high = mWords.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mWords[mid].startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean hasWordIn(int[] words, int from, int to) {
+        int index = Arrays.binarySearch(words, from);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < words.length && words[index] < to;
+    }
+
+    private static void setAll(BitSet bits, int[] settings) {
+        for (int setting : settings) {
+            bits.set(setting);
+        }
+    }
+
+    private static class PostingsBuilder {
+        final IntList mAll = new IntList();
+        final IntList mOptions = new IntList();
+    }
+
+    /**
+     * Sorted list of distinct ints, settings or words. Values are added in
+     * order, so a duplicate can only be the last one.
+     */
+    private static class IntList {
+        private int[] mValues = NO_POSTINGS;
+        private int mSize;
+
+        void add(int value) {
+            if (mSize > 0 && mValues[mSize - 1] == value) {
+                return;
+            }
+            if (mSize == mValues.length) {
+                mValues = Arrays.copyOf(mValues, Math.max(4, mSize * 2));
+            }
+            mValues[mSize++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(mValues, mSize);
+        }
+    }
+}
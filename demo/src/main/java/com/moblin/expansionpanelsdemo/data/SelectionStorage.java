@@ -0,0 +1,118 @@
+package com.moblin.expansionpanelsdemo.data;
+
+import com.moblin.expansionpanelsdemo.util.Assert;
+import com.moblin.expansionpanelsdemo.util.PackedInput;
+import com.moblin.expansionpanelsdemo.util.PackedOutput;
+import com.moblin.expansionpanelsdemo.util.WriteBehindQueue;
+
+import java.io.File;
+
+/**
+ * Persists the committed selections (panel ID to option index) in a local
+ * file. Saving is write-behind: selections saved in quick succession are
+ * written once, on the disk I/O thread. Should be used on the main thread.
+ */
+public class SelectionStorage {
+    private static final int FORMAT_VERSION = 1;
+    // A panel ID and an option, a byte each at least.
+    private static final int MIN_ENTRY_SIZE = 2;
+    private static final long WRITE_DELAY_MS = 500;
+
+    /**
+     * Receives the loaded selections.
+     */
+    public interface LoadCallback {
+        /**
+         * Called on the main thread.
+         * @param panelIds - IDs of the panels that have a selection
+         * @param options - selected option of each panel
+         */
+        void onSelectionsLoaded(long[] panelIds, int[] options);
+    }
+
+    private final WriteBehindQueue mQueue;
+
+    /**
+     * Public constructor
+     * @param file - file to keep the selections in
+     */
+    public SelectionStorage(File file) {
+        mQueue = new WriteBehindQueue(file, WRITE_DELAY_MS);
+    }
+
+    /**
+     * Loads the selections on the disk I/O thread. Delivers empty arrays if
+     * nothing was saved or the file can't be decoded.
+     * @param callback - receives the selections
+     */
+    public void load(final LoadCallback callback) {
+        mQueue.read(new WriteBehindQueue.ReadCallback() {
+            @Override
+            public void onRead(byte[] data) {
+                decode(data, callback);
+            }
+        });
+    }
+
+    /**
+     * Saves all the committed selections, replacing the saved ones.
+     * Doesn't block, the arrays must not be modified afterwards.
+     * @param panelIds - IDs of the panels that have a selection
+     * @param options - selected option of each panel
+     */
+    public void save(final long[] panelIds, final int[] options) {
+        Assert.isTrue(panelIds.length == options.length, "IDs and options differ in length");
+        mQueue.schedule(new WriteBehindQueue.Snapshot() {
+            @Override
+            public byte[] encode() {
+                PackedOutput out = new PackedOutput(2 + panelIds.length * 3);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(panelIds.length);
+                for (int i = 0; i < panelIds.length; i++) {
+                    out.writeLong(panelIds[i]);
+                    out.writeInt(options[i]);
+                }
+                return out.toByteArray();
+            }
+        });
+    }
+
+    /**
+     * Writes the pending selections right away, typically in onStop().
+     */
+    public void flush() {
+        mQueue.flush();
+    }
+
+    /**
+     * Decodes the file content written by save(). Delivers empty arrays if
+     * the content is missing, of another format version, or corrupt, so a
+     * bad file is replaced by the next save instead of failing every launch.
+     * @param data - file content, or null
+     * @param callback - receives the selections
+     */
+    static void decode(byte[] data, LoadCallback callback) {
+        long[] panelIds = new long[0];
+        int[] options = new int[0];
+        if (data != null) {
+            try {
+                PackedInput in = new PackedInput(data);
+                if (in.readInt() == FORMAT_VERSION) {
+                    // Checked against the data, a corrupt count must not allocate.
+                    int count = in.readCount(MIN_ENTRY_SIZE);
+                    panelIds = new long[count];
+                    options = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        panelIds[i] = in.readLong();
+                        options[i] = in.readInt();
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                // Truncated or written by a broken build, start over.
+                panelIds = new long[0];
+                options = new int[0];
+            }
+        }
+        callback.onSelectionsLoaded(panelIds, options);
+    }
+}
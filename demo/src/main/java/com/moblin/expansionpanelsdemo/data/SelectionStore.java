@@ -0,0 +1,253 @@
+package com.moblin.expansionpanelsdemo.data;
+
+import com.moblin.expansionpanelsdemo.util.AppExecutors;
+import com.moblin.expansionpanelsdemo.util.Assert;
+import com.moblin.expansionpanelsdemo.util.LongHashSet;
+import com.moblin.expansionpanelsdemo.util.LongIntMap;
+import com.moblin.expansionpanelsdemo.util.PackedInput;
+import com.moblin.expansionpanelsdemo.util.PackedOutput;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Selected options of the panels, keyed by panel ID, in two layers: the
+ * committed selections and the drafts being edited. A draft becomes the
+ * committed selection in one step, and is discarded in constant time.
+ * Commits made in the same main thread message are reported together, with
+ * only the panels whose committed selection changed. Should be used on the
+ * main thread.
+ */
+public class SelectionStore {
+    public static final int NOT_SELECTED = -1;
+
+    /**
+     * Receives the committed changes.
+     */
+    public interface Listener {
+        /**
+         * Called on the main thread, once per batch of commits.
+         * @param panelIds - IDs of the panels whose committed selection changed
+         */
+        void onSelectionsCommitted(long[] panelIds);
+    }
+
+    /**
+     * Checks restored and merged selections, e.g. against the catalog they
+     * were made from.
+     */
+    public interface Validator {
+        /**
+         * @param panelId - panel ID
+         * @param option - selected option
+         * @return true if the panel exists and has the option
+         */
+        boolean isValid(long panelId, int option);
+    }
+
+    private final LongIntMap mCommitted = new LongIntMap();
+    private final LongIntMap mDrafts = new LongIntMap();
+    private final LongHashSet mChangedIds = new LongHashSet();
+    private final Validator mValidator;
+    private final Executor mMainThread;
+    private Listener mListener;
+    private boolean mDispatchPending;
+
+    private final Runnable mDispatch = new Runnable() {
+        @Override
+        public void run() {
+            mDispatchPending = false;
+            if (mChangedIds.isEmpty()) {
+                return;
+            }
+            long[] panelIds = mChangedIds.toArray();
+            mChangedIds.clear();
+            if (mListener != null) {
+                mListener.onSelectionsCommitted(panelIds);
+            }
+        }
+    };
+
+    /**
+     * Public constructor
+     * @param validator - checks restored and merged selections
+     */
+    public SelectionStore(Validator validator) {
+        this(validator, AppExecutors.mainThread());
+    }
+
+    /**
+     * Package-private constructor
+     * @param validator - checks restored and merged selections
+     * @param mainThread - runs the dispatch of the committed changes
+     */
+    SelectionStore(Validator validator, Executor mainThread) {
+        mValidator = validator;
+        mMainThread = mainThread;
+    }
+
+    /**
+     * Sets the listener of the committed changes.
+     * @param listener - listener, or null
+     */
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Returns the committed selection of a panel.
+     * @param panelId - panel ID
+     * @return selected option, or NOT_SELECTED
+     */
+    public int getCommitted(long panelId) {
+        return mCommitted.get(panelId, NOT_SELECTED);
+    }
+
+    /**
+     * Returns the selection being edited in a panel.
+     * @param panelId - panel ID
+     * @return draft option, the committed one if there's no draft
+     */
+    public int getDraft(long panelId) {
+        return mDrafts.get(panelId, getCommitted(panelId));
+    }
+
+    /**
+     * Sets the selection being edited in a panel.
+     * @param panelId - panel ID
+     * @param option - draft option
+     */
+    public void setDraft(long panelId, int option) {
+        if (option == getCommitted(panelId)) {
+            // Committing it would change nothing.
+            mDrafts.remove(panelId);
+        } else {
+            mDrafts.put(panelId, option);
+        }
+    }
+
+    /**
+     * Discards the draft of a panel.
+     * @param panelId - panel ID
+     */
+    public void discardDraft(long panelId) {
+        mDrafts.remove(panelId);
+    }
+
+    /**
+     * Makes the draft of a panel its committed selection. Clearing a
+     * selection isn't a commit: a draft of NOT_SELECTED is discarded.
+     * @param panelId - panel ID
+     */
+    public void commit(long panelId) {
+        int option = mDrafts.get(panelId, NOT_SELECTED);
+        mDrafts.remove(panelId);
+        if (option != NOT_SELECTED) {
+            putCommitted(panelId, option);
+        }
+    }
+
+    /**
+     * Adds selections committed elsewhere, e.g. loaded from storage, to the
+     * panels that don't have a committed selection yet.
+     * @param panelIds - panel IDs
+     * @param options - selected option of each panel
+     */
+    public void mergeCommitted(long[] panelIds, int[] options) {
+        Assert.isTrue(panelIds.length == options.length, "IDs and options differ in length");
+        for (int i = 0; i < panelIds.length; i++) {
+            if (!mCommitted.containsKey(panelIds[i])
+                    && mValidator.isValid(panelIds[i], options[i])) {
+                putCommitted(panelIds[i], options[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the IDs of the panels that have a committed selection.
+     * @return sorted panel IDs
+     */
+    public long[] getCommittedIds() {
+        long[] panelIds = mCommitted.toKeyArray();
+        Arrays.sort(panelIds);
+        return panelIds;
+    }
+
+    /**
+     * Encodes both layers, to be kept in the saved instance state.
+     * @return encoded selections
+     */
+    public byte[] encode() {
+        PackedOutput out = new PackedOutput(2 + (mCommitted.size() + mDrafts.size()) * 2);
+        encodeLayer(out, mCommitted);
+        encodeLayer(out, mDrafts);
+        return out.toByteArray();
+    }
+
+    /**
+     * Replaces both layers with encoded ones. Doesn't notify the listener.
+     * Invalid selections are dropped.
+     * @param data - data returned by encode()
+     * @return false if the data can't be decoded, the store is left as is
+     */
+    public boolean restore(byte[] data) {
+        LongIntMap committed = new LongIntMap();
+        LongIntMap drafts = new LongIntMap();
+        try {
+            PackedInput in = new PackedInput(data);
+            decodeLayer(in, committed);
+            decodeLayer(in, drafts);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        copy(committed, mCommitted);
+        copy(drafts, mDrafts);
+        return true;
+    }
+
+    /** Private methods */
+
+    private void putCommitted(long panelId, int option) {
+        if (getCommitted(panelId) == option) {
+            return;
+        }
+        mCommitted.put(panelId, option);
+        mChangedIds.add(panelId);
+        if (!mDispatchPending) {
+            mDispatchPending = true;
+            mMainThread.execute(mDispatch);
+        }
+    }
+
+    private static void encodeLayer(PackedOutput out, LongIntMap layer) {
+        // Sorted, so the IDs are written as small deltas.
+        long[] panelIds = layer.toKeyArray();
+        Arrays.sort(panelIds);
+        out.writeInt(panelIds.length);
+        long previous = 0;
+        for (long panelId : panelIds) {
+            out.writeLong(panelId - previous);
+            out.writeInt(layer.get(panelId, NOT_SELECTED) + 1);
+            previous = panelId;
+        }
+    }
+
+    private void decodeLayer(PackedInput in, LongIntMap layer) {
+        int count = in.readInt();
+        long panelId = 0;
+        for (int i = 0; i < count; i++) {
+            panelId += in.readLong();
+            int option = in.readInt() - 1;
+            if (option == NOT_SELECTED || mValidator.isValid(panelId, option)) {
+                layer.put(panelId, option);
+            }
+        }
+    }
+
+    private static void copy(LongIntMap from, LongIntMap to) {
+        to.clear();
+        for (long key : from.toKeyArray()) {
+            to.put(key, from.get(key, NOT_SELECTED));
+        }
+    }
+}
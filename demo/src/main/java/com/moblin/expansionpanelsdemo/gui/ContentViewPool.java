@@ -0,0 +1,191 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import android.content.ComponentCallbacks2;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+import com.moblin.expansionpanelsdemo.gui.ExpansionPanelsAdapter.ViewHolderType;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of the content view-holders that ExpansionPanelsAdapter subclasses
+ * supply. View-holders are kept per (view-holder type, view type) key, so
+ * panels of different kinds can reuse each other's summaries, details and
+ * actions. The pool is bounded per key and in total; when it's full, the
+ * least recently pooled view-holder is evicted. A pool can be shared between
+ * adapters. Should be used on the main thread only.
+ */
+@SuppressWarnings("WeakerAccess")
+public class ContentViewPool {
+    static final int DEFAULT_MAX_POOLED = 5;
+    static final int DEFAULT_MAX_TOTAL = 12;
+
+    // Least recently pooled first.
+    private ArrayList<Entry> mEntries = new ArrayList<Entry>();
+    private SparseIntArray mPooledCount = new SparseIntArray();
+    private SparseIntArray mMaxPooled = new SparseIntArray();
+    private int mMaxTotal = DEFAULT_MAX_TOTAL;
+    private int mHitCount, mMissCount, mEvictionCount;
+
+    /**
+     * Sets the maximal number of pooled view-holders for the given key.
+     * @param holderType - view-holder type
+     * @param viewType - content view type
+     * @param max - maximal number of pooled view-holders
+     */
+    public void setMaxPooledViews(ViewHolderType holderType, int viewType, int max) {
+        int key = key(holderType, viewType);
+        mMaxPooled.put(key, max);
+        // Drop the least recently pooled ones of the key.
+        for (int i = 0; i < mEntries.size() && mPooledCount.get(key) > max; ) {
+            if (mEntries.get(i).mKey == key) {
+                evict(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Sets the maximal number of pooled view-holders of all keys together.
+     * @param max - maximal number of pooled view-holders
+     */
+    public void setMaxTotalPooledViews(int max) {
+        mMaxTotal = max;
+        trimTo(max);
+    }
+
+    /**
+     * Returns the maximal number of pooled view-holders of all keys together.
+     * @return maximal number of pooled view-holders
+     */
+    public int getMaxTotalPooledViews() {
+        return mMaxTotal;
+    }
+
+    /**
+     * Takes the most recently pooled view-holder of the given key out of the pool.
+     * @param holderType - view-holder type
+     * @param viewType - content view type
+     * @return pooled view-holder, or null if there is none
+     */
+    public RecyclerView.ViewHolder get(ViewHolderType holderType, int viewType) {
+        int key = key(holderType, viewType);
+        for (int i = mEntries.size() - 1; i >= 0; i--) {
+            if (mEntries.get(i).mKey == key) {
+                mHitCount++;
+                mPooledCount.put(key, mPooledCount.get(key) - 1);
+                return mEntries.remove(i).mHolder;
+            }
+        }
+        mMissCount++;
+        return null;
+    }
+
+    /**
+     * Puts a detached view-holder into the pool. If the pool is full in
+     * total, the least recently pooled view-holder is evicted.
+     * @param holderType - view-holder type
+     * @param viewType - content view type
+     * @param holder - view-holder, its view must not have a parent
+     * @return true if pooled, false if the pool for this key is full
+     */
+    public boolean put(ViewHolderType holderType, int viewType, RecyclerView.ViewHolder holder) {
+        int key = key(holderType, viewType);
+        int count = mPooledCount.get(key);
+        if (count >= mMaxPooled.get(key, DEFAULT_MAX_POOLED) || mMaxTotal <= 0) {
+            return false;
+        }
+        trimTo(mMaxTotal - 1);
+        mEntries.add(new Entry(key, holder));
+        mPooledCount.put(key, count + 1);
+        return true;
+    }
+
+    /**
+     * Evicts view-holders according to the memory trim level, to be called
+     * from ComponentCallbacks2.onTrimMemory(). Keeps everything while the
+     * app runs normally, half the pool when memory runs low, and nothing
+     * when the UI is hidden or memory is critical.
+     * @param level - trim level
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimTo(0);
+        } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimTo(mEntries.size() / 2);
+        }
+    }
+
+    /**
+     * Drops all pooled view-holders. Not counted as evictions.
+     */
+    public void clear() {
+        mEntries.clear();
+        mPooledCount.clear();
+    }
+
+    /**
+     * Returns the number of view-holders taken out of the pool.
+     * @return number of hits
+     */
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Returns the number of requests the pool had no view-holder for, each
+     * of which costs a view-holder creation.
+     * @return number of misses
+     */
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Returns the number of view-holders evicted to bound the pool or on
+     * memory trims.
+     * @return number of evictions
+     */
+    public int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * Returns the number of pooled view-holders of all keys.
+     * @return number of pooled view-holders
+     */
+    public int size() {
+        return mEntries.size();
+    }
+
+    /** Private methods */
+
+    private void trimTo(int size) {
+        while (mEntries.size() > Math.max(size, 0)) {
+            evict(0);
+        }
+    }
+
+    private void evict(int index) {
+        Entry entry = mEntries.remove(index);
+        mPooledCount.put(entry.mKey, mPooledCount.get(entry.mKey) - 1);
+        mEvictionCount++;
+    }
+
+    private static int key(ViewHolderType holderType, int viewType) {
+        return (viewType << 2) | holderType.ordinal();
+    }
+
+    private static class Entry {
+        final int mKey;
+        final RecyclerView.ViewHolder mHolder;
+
+        Entry(int key, RecyclerView.ViewHolder holder) {
+            mKey = key;
+            mHolder = holder;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * Runs the binds that ExpansionPanelsAdapter defers out of layout passes, on
+ * the following frames, within a time budget per frame. The panels nearest
+ * to the visible ones are bound first. At least one bind runs per frame, so
+ * the queue drains even if single binds exceed the budget.
+ */
+class DeferredBindScheduler implements Choreographer.FrameCallback {
+    /**
+     * Performs the deferred binds.
+     */
+    interface Binder {
+        /**
+         * @param holder - panel whose bind was deferred
+         */
+        void bindDeferred(ExpansionPanelsAdapter.ViewHolder holder);
+    }
+
+    private final Binder mBinder;
+    private final ArrayList<ExpansionPanelsAdapter.ViewHolder> mQueue =
+            new ArrayList<ExpansionPanelsAdapter.ViewHolder>();
+    private long mBudgetNs;
+    private RecyclerView mRecyclerView;
+    private boolean mScheduled;
+
+    /**
+     * Package-private constructor
+     * @param binder - performs the deferred binds
+     * @param budgetNs - time to spend on deferred binds per frame
+     */
+    DeferredBindScheduler(Binder binder, long budgetNs) {
+        mBinder = binder;
+        mBudgetNs = budgetNs;
+    }
+
+    /**
+     * Sets the time to spend on deferred binds per frame.
+     * @param budgetNs - time budget
+     */
+    void setBudget(long budgetNs) {
+        mBudgetNs = budgetNs;
+    }
+
+    /**
+     * Sets the RecyclerView whose visible panels are bound first.
+     * @param recyclerView - RecyclerView, or null
+     */
+    void setRecyclerView(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+    }
+
+    /**
+     * Queues the bind of a panel, if it's not queued yet.
+     * @param holder - panel to bind
+     */
+    void schedule(ExpansionPanelsAdapter.ViewHolder holder) {
+        if (!mQueue.contains(holder)) {
+            mQueue.add(holder);
+        }
+        if (!mScheduled) {
+            mScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Removes a panel from the queue, e.g. when it was bound meanwhile.
+     * @param holder - panel to remove
+     */
+    void cancel(ExpansionPanelsAdapter.ViewHolder holder) {
+        mQueue.remove(holder);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mScheduled = false;
+        long deadline = System.nanoTime() + mBudgetNs;
+        int anchor = anchorPosition();
+        while (!mQueue.isEmpty()) {
+            mBinder.bindDeferred(mQueue.remove(nearest(anchor)));
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        if (!mQueue.isEmpty()) {
+            mScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /** Private methods */
+
+    private int anchorPosition() {
+        if (mRecyclerView == null
+                || !(mRecyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return 0;
+        }
+        LinearLayoutManager layoutManager =
+                (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        return (first == RecyclerView.NO_POSITION) ? 0 : (first + last) / 2;
+    }
+
+    private int nearest(int anchor) {
+        // The queue holds the panels of a few frames, a scan is cheap.
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < mQueue.size(); i++) {
+            int position = mQueue.get(i).getLayoutPosition();
+            int distance = (position == RecyclerView.NO_POSITION) ?
+                    Integer.MAX_VALUE - 1 : Math.abs(position - anchor);
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,263 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.DefaultItemAnimator;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.animation.Interpolator;
+
+import java.util.ArrayList;
+
+/**
+ * Item animator for expansion panels. The panel that is expanded or collapsed
+ * animates its height, while the neighbouring panels are moved by the default
+ * move animation. Only the panels affected by a change are animated, and the
+ * height animations are recycled, so no animation objects are allocated once
+ * the animator has warmed up. A panel that changes height again while it's
+ * animating is retargeted: its animation continues from the current height
+ * to the new one, for the part of the duration that the distance takes.
+ */
+class ExpansionItemAnimator extends DefaultItemAnimator {
+    /**
+     * Receives the ends of the height animations.
+     */
+    interface ResizeListener {
+        /**
+         * @param holder - panel that was resized
+         * @param expanded - true if the panel grew
+         * @param durationNs - time from the start to the end of the animation
+         */
+        void onResizeEnded(RecyclerView.ViewHolder holder, boolean expanded, long durationNs);
+    }
+
+    private final Interpolator mInterpolator;
+    private final ArrayList<Resize> mPendingResizes = new ArrayList<Resize>();
+    private final ArrayList<Resize> mRunningResizes = new ArrayList<Resize>();
+    private final ArrayList<Resize> mIdleResizes = new ArrayList<Resize>();
+    private ResizeListener mResizeListener;
+
+    /**
+     * Package-private constructor
+     * @param duration - duration of the expansion animation
+     * @param interpolator - interpolator of the height animation
+     */
+    ExpansionItemAnimator(long duration, Interpolator interpolator) {
+        mInterpolator = interpolator;
+        setMoveDuration(duration);
+        setChangeDuration(duration);
+    }
+
+    /**
+     * Sets the listener of the height animations.
+     * @param listener - listener, or null to remove it
+     */
+    void setResizeListener(ResizeListener listener) {
+        mResizeListener = listener;
+    }
+
+    /** Item Animator methods */
+
+    @Override
+    public boolean animateChange(@NonNull RecyclerView.ViewHolder oldHolder,
+                                 @NonNull RecyclerView.ViewHolder newHolder,
+                                 @NonNull ItemHolderInfo preInfo,
+                                 @NonNull ItemHolderInfo postInfo) {
+        if (oldHolder != newHolder) {
+            return super.animateChange(oldHolder, newHolder, preInfo, postInfo);
+        }
+
+        // The resize moves the panel too, so the change is finished once,
+        // when the resize ends, and the holder stays animating until then.
+        RecyclerView.ViewHolder holder = newHolder;
+        View view = holder.itemView;
+        float fromTranslation = preInfo.top + view.getTranslationY() - postInfo.top;
+        // Ends the moves of the holder, but not its resize.
+        super.endAnimation(holder);
+        int fromHeight = preInfo.bottom - preInfo.top;
+        int toHeight = postInfo.bottom - postInfo.top;
+        Resize resize = findResize(holder);
+        if (resize != null) {
+            // The previous change is superseded by this one, which the resize
+            // continues from the height and position the panel has on screen.
+            dispatchChangeFinished(holder, false);
+            view.setBottom(view.getTop() + fromHeight);
+            view.setTranslationY(fromTranslation);
+            resize.retarget(fromHeight, toHeight, fromTranslation, getChangeDuration());
+            return mPendingResizes.contains(resize);
+        }
+        if (fromHeight == toHeight && fromTranslation == 0) {
+            dispatchChangeFinished(holder, false);
+            return false;
+        }
+        view.setBottom(view.getTop() + fromHeight);
+        view.setTranslationY(fromTranslation);
+        mPendingResizes.add(obtainResize(holder, fromHeight, toHeight, fromTranslation));
+        return true;
+    }
+
+    @Override
+    public void runPendingAnimations() {
+        super.runPendingAnimations();
+        for (int i = 0; i < mPendingResizes.size(); i++) {
+            Resize resize = mPendingResizes.get(i);
+            mRunningResizes.add(resize);
+            dispatchChangeStarting(resize.mHolder, false);
+            resize.start(getChangeDuration());
+        }
+        mPendingResizes.clear();
+    }
+
+    @Override
+    public void endAnimation(RecyclerView.ViewHolder item) {
+        super.endAnimation(item);
+        Resize resize = findResize(item);
+        if (resize == null) {
+            return;
+        }
+        if (mPendingResizes.remove(resize)) {
+            onResizeFinished(resize);
+        } else {
+            // Finishes through onAnimationEnd().
+            resize.mAnimator.end();
+        }
+    }
+
+    @Override
+    public void endAnimations() {
+        super.endAnimations();
+        for (int i = mPendingResizes.size() - 1; i >= 0; i--) {
+            onResizeFinished(mPendingResizes.remove(i));
+        }
+        for (int i = mRunningResizes.size() - 1; i >= 0; i--) {
+            mRunningResizes.get(i).mAnimator.end();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return super.isRunning() || !mPendingResizes.isEmpty()
+                || !mRunningResizes.isEmpty();
+    }
+
+    /** Private methods */
+
+    private Resize findResize(RecyclerView.ViewHolder holder) {
+        // A holder has at most one resize, pending or running.
+        for (int i = 0; i < mPendingResizes.size(); i++) {
+            if (mPendingResizes.get(i).mHolder == holder) {
+                return mPendingResizes.get(i);
+            }
+        }
+        for (int i = 0; i < mRunningResizes.size(); i++) {
+            if (mRunningResizes.get(i).mHolder == holder) {
+                return mRunningResizes.get(i);
+            }
+        }
+        return null;
+    }
+
+    private Resize obtainResize(RecyclerView.ViewHolder holder, int fromHeight, int toHeight,
+                                float fromTranslation) {
+        Resize resize = mIdleResizes.isEmpty() ?
+                new Resize() : mIdleResizes.remove(mIdleResizes.size() - 1);
+        resize.mHolder = holder;
+        resize.mFromHeight = fromHeight;
+        resize.mToHeight = toHeight;
+        resize.mFromTranslation = fromTranslation;
+        resize.mSpan = distance(fromHeight, toHeight, fromTranslation);
+        resize.mStartNs = 0;
+        return resize;
+    }
+
+    private void onResizeFinished(Resize resize) {
+        mRunningResizes.remove(resize);
+        RecyclerView.ViewHolder holder = resize.mHolder;
+        View view = holder.itemView;
+        view.setBottom(view.getTop() + resize.mToHeight);
+        view.setTranslationY(0);
+        if (mResizeListener != null && resize.mStartNs != 0) {
+            mResizeListener.onResizeEnded(holder, resize.mToHeight > resize.mFromHeight,
+                    System.nanoTime() - resize.mStartNs);
+        }
+        resize.mHolder = null;
+        mIdleResizes.add(resize);
+        // The holder can be recycled or rebound from here on.
+        dispatchChangeFinished(holder, false);
+        if (!isRunning()) {
+            dispatchAnimationsFinished();
+        }
+    }
+
+    private static int distance(int fromHeight, int toHeight, float fromTranslation) {
+        return Math.max(Math.abs(toHeight - fromHeight), Math.round(Math.abs(fromTranslation)));
+    }
+
+    /**
+     * Animates the bottom of a panel between two heights, and its position
+     * if it moved. The animated values are derived from the interpolated
+     * fraction to avoid boxing per frame.
+     */
+    private class Resize extends AnimatorListenerAdapter
+            implements ValueAnimator.AnimatorUpdateListener {
+        private final ValueAnimator mAnimator = ValueAnimator.ofFloat(0f, 1f);
+        private RecyclerView.ViewHolder mHolder;
+        private int mFromHeight, mToHeight;
+        // Offset from the laid out position, animated to none.
+        private float mFromTranslation;
+        // Distance of the first animation, the full duration is for it.
+        private int mSpan;
+        private long mStartNs;
+        private boolean mRestarting;
+
+        Resize() {
+            mAnimator.setInterpolator(mInterpolator);
+            mAnimator.addUpdateListener(this);
+            mAnimator.addListener(this);
+        }
+
+        void start(long duration) {
+            // Timed only for the listener.
+            mStartNs = (mResizeListener != null) ? System.nanoTime() : 0;
+            mAnimator.setDuration(duration);
+            mAnimator.start();
+        }
+
+        void retarget(int fromHeight, int toHeight, float fromTranslation, long duration) {
+            mFromHeight = fromHeight;
+            mToHeight = toHeight;
+            mFromTranslation = fromTranslation;
+            int distance = distance(fromHeight, toHeight, fromTranslation);
+            mSpan = Math.max(mSpan, distance);
+            if (!mAnimator.isStarted()) {
+                // Pending, started with the others.
+                return;
+            }
+            // Restarted without finishing, the start time is kept for the listener.
+            mRestarting = true;
+            mAnimator.cancel();
+            mRestarting = false;
+            mAnimator.setDuration((mSpan == 0) ? 0 : duration * distance / mSpan);
+            mAnimator.start();
+        }
+
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            float fraction = animation.getAnimatedFraction();
+            View view = mHolder.itemView;
+            view.setBottom(view.getTop() + mFromHeight
+                    + Math.round((mToHeight - mFromHeight) * fraction));
+            view.setTranslationY(mFromTranslation * (1 - fraction));
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (mRestarting) {
+                return;
+            }
+            onResizeFinished(this);
+        }
+    }
+}
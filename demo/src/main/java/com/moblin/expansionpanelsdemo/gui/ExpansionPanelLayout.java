@@ -0,0 +1,233 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.support.v7.widget.CardView;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.moblin.binder.BindLayout;
+import com.moblin.binder.BindView;
+import com.moblin.expansionpanelsdemo.R;
+
+/**
+ * Card that lays out an expansion panel in a single pass: summary and
+ * expand icon on the top row, then details, divider and actions below them.
+ * The summary, details and actions views are set by the adapter; the icon
+ * and the divider are declared in the layout. Collapsed panels measure and
+ * lay out only the top row.
+ */
+@SuppressWarnings("WeakerAccess")
+@BindLayout("expansion_panel")
+public class ExpansionPanelLayout extends CardView {
+    private View mSummaryView, mDetailsView, mActionsView;
+    @BindView("iv_expand_icon") View mExpandIcon;
+    @BindView("view_divider") View mDivider;
+    private boolean mExpanded;
+    private int mSummaryHeight, mSummaryMarginEnd;
+    private int mContentMarginStart, mContentMarginEnd;
+    private int mDividerMargin, mActionsHeight, mActionsMarginBottom;
+
+    public ExpansionPanelLayout(Context context) {
+        this(context, null);
+    }
+
+    public ExpansionPanelLayout(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public ExpansionPanelLayout(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        readResourceValues(context.getResources());
+    }
+
+    /**
+     * Sets the summary view, replacing the previous one.
+     * @param view - summary view, or null to remove it
+     */
+    public void setSummaryView(View view) {
+        mSummaryView = replaceView(mSummaryView, view, true);
+    }
+
+    /**
+     * Sets the details view, replacing the previous one.
+     * @param view - details view, or null to remove it
+     */
+    public void setDetailsView(View view) {
+        mDetailsView = replaceView(mDetailsView, view, mExpanded);
+    }
+
+    /**
+     * Sets the actions view, replacing the previous one.
+     * @param view - actions view, or null to remove it
+     */
+    public void setActionsView(View view) {
+        mActionsView = replaceView(mActionsView, view, mExpanded);
+    }
+
+    /**
+     * Shows or hides the details, the divider and the actions.
+     * @param expanded - true to expand the panel
+     */
+    public void setExpanded(boolean expanded) {
+        if (mExpanded == expanded) {
+            return;
+        }
+        mExpanded = expanded;
+        int visibility = expanded ? View.VISIBLE : View.GONE;
+        if (mDetailsView != null) {
+            mDetailsView.setVisibility(visibility);
+        }
+        if (mActionsView != null) {
+            mActionsView.setVisibility(visibility);
+        }
+        mDivider.setVisibility(visibility);
+        mExpandIcon.setSelected(expanded);
+    }
+
+    /**
+     * Checks whether the panel is expanded.
+     * @return true if expanded
+     */
+    public boolean isExpanded() {
+        return mExpanded;
+    }
+
+    /** View methods */
+
+    @Override
+    protected void onFinishInflate() {
+        super.onFinishInflate();
+        // Only the declared children are added at this point.
+        ExpansionPanelLayout_Binder.bind(this, this);
+        mDivider.setVisibility(View.GONE);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED ?
+                getSuggestedMinimumWidth() : MeasureSpec.getSize(widthMeasureSpec);
+        int innerWidth = Math.max(0, width - getPaddingLeft() - getPaddingRight());
+
+        // Top row: the icon keeps its size, the summary takes the rest.
+        measureChild(mExpandIcon, MeasureSpec.makeMeasureSpec(innerWidth, MeasureSpec.AT_MOST),
+                MeasureSpec.makeMeasureSpec(mSummaryHeight, MeasureSpec.AT_MOST));
+        int summaryWidth = innerWidth - mContentMarginStart - mSummaryMarginEnd
+                - mExpandIcon.getMeasuredWidth() - mContentMarginEnd;
+        measureSlot(mSummaryView, summaryWidth, mSummaryHeight);
+        int height = mSummaryHeight;
+
+        // Collapsed panels skip the rest.
+        if (mExpanded) {
+            height += measureSlot(mDetailsView,
+                    innerWidth - mContentMarginStart - mContentMarginEnd, -1);
+            measureChild(mDivider, MeasureSpec.makeMeasureSpec(innerWidth, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+            height += mDividerMargin + mDivider.getMeasuredHeight();
+            measureSlot(mActionsView, innerWidth, mActionsHeight);
+            height += mDividerMargin + mActionsHeight + mActionsMarginBottom;
+        }
+
+        height += getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        int innerLeft = getPaddingLeft();
+        int innerRight = right - left - getPaddingRight();
+        int y = getPaddingTop();
+
+        // Top row: the icon is centered vertically in the summary's row.
+        int iconRight = innerRight - mContentMarginEnd;
+        int iconTop = y + (mSummaryHeight - mExpandIcon.getMeasuredHeight()) / 2;
+        mExpandIcon.layout(iconRight - mExpandIcon.getMeasuredWidth(), iconTop,
+                iconRight, iconTop + mExpandIcon.getMeasuredHeight());
+        layoutSlot(mSummaryView, innerLeft + mContentMarginStart, y);
+        y += mSummaryHeight;
+
+        if (mExpanded) {
+            y = layoutSlot(mDetailsView, innerLeft + mContentMarginStart, y);
+            y += mDividerMargin;
+            mDivider.layout(innerLeft, y, innerRight, y + mDivider.getMeasuredHeight());
+            y += mDivider.getMeasuredHeight() + mDividerMargin;
+            layoutSlot(mActionsView, innerLeft, y);
+        }
+    }
+
+    /** Private methods */
+
+    private void readResourceValues(Resources res) {
+        mSummaryHeight = res.getDimensionPixelSize(
+                R.dimen.expansion_panel_sum_container_h_collapsed);
+        mSummaryMarginEnd = res.getDimensionPixelSize(
+                R.dimen.expansion_panel_sum_container_mar_end);
+        mContentMarginStart = res.getDimensionPixelSize(
+                R.dimen.expansion_panel_containers_m_start);
+        mContentMarginEnd = res.getDimensionPixelSize(
+                R.dimen.expansion_panel_containers_m_end);
+        mDividerMargin = res.getDimensionPixelSize(
+                R.dimen.expansion_panel_divider_vertical_margin);
+        mActionsHeight = res.getDimensionPixelSize(
+                R.dimen.expansion_panel_actions_container_h);
+        mActionsMarginBottom = res.getDimensionPixelSize(
+                R.dimen.expansion_panel_actions_container_m_bottom);
+    }
+
+    private View replaceView(View current, View view, boolean visible) {
+        if (current == view) {
+            return current;
+        }
+        if (current != null) {
+            removeView(current);
+        }
+        if (view != null) {
+            view.setVisibility(visible ? View.VISIBLE : View.GONE);
+            addView(view);
+        }
+        return view;
+    }
+
+    /**
+     * Measures a content view inside its slot, respecting its margins.
+     * @param view - content view, can be null
+     * @param slotWidth - width of the slot
+     * @param slotHeight - height of the slot, or -1 to wrap the content
+     * @return height of the slot
+     */
+    private int measureSlot(View view, int slotWidth, int slotHeight) {
+        if (view == null) {
+            return Math.max(slotHeight, 0);
+        }
+        MarginLayoutParams lp = (MarginLayoutParams) view.getLayoutParams();
+        int widthSpec = getChildMeasureSpec(
+                MeasureSpec.makeMeasureSpec(Math.max(slotWidth, 0), MeasureSpec.EXACTLY),
+                lp.leftMargin + lp.rightMargin, lp.width);
+        int heightSpec = getChildMeasureSpec((slotHeight < 0) ?
+                MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED) :
+                MeasureSpec.makeMeasureSpec(slotHeight, MeasureSpec.EXACTLY),
+                lp.topMargin + lp.bottomMargin, lp.height);
+        view.measure(widthSpec, heightSpec);
+        return (slotHeight < 0) ?
+                lp.topMargin + view.getMeasuredHeight() + lp.bottomMargin : slotHeight;
+    }
+
+    /**
+     * Lays out a content view at the top-left of its slot.
+     * @param view - content view, can be null
+     * @param slotLeft - left of the slot
+     * @param slotTop - top of the slot
+     * @return bottom of the content including its margins
+     */
+    private int layoutSlot(View view, int slotLeft, int slotTop) {
+        if (view == null) {
+            return slotTop;
+        }
+        MarginLayoutParams lp = (MarginLayoutParams) view.getLayoutParams();
+        int childLeft = slotLeft + lp.leftMargin;
+        int childTop = slotTop + lp.topMargin;
+        view.layout(childLeft, childTop, childLeft + view.getMeasuredWidth(),
+                childTop + view.getMeasuredHeight());
+        return childTop + view.getMeasuredHeight() + lp.bottomMargin;
+    }
+}
@@ -1,21 +1,35 @@
 package com.moblin.expansionpanelsdemo.gui;
 
+import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.res.Resources;
-import android.support.annotation.IdRes;
-import android.support.transition.AutoTransition;
-import android.support.transition.Transition;
-import android.support.transition.TransitionManager;
-import android.support.v7.widget.CardView;
+import android.os.Bundle;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.AccelerateDecelerateInterpolator;
 import android.widget.FrameLayout;
-import android.widget.ImageView;
 
+import com.moblin.binder.BindLayout;
+import com.moblin.binder.BindView;
 import com.moblin.expansionpanelsdemo.R;
-import com.moblin.expansionpanelsdemo.util.Assert;
+import com.moblin.expansionpanelsdemo.util.AppExecutors;
+import com.moblin.expansionpanelsdemo.util.LatencyHistogram;
+import com.moblin.expansionpanelsdemo.util.LongHashSet;
+import com.moblin.expansionpanelsdemo.util.LongIntMap;
+import com.moblin.expansionpanelsdemo.util.PackedInput;
+import com.moblin.expansionpanelsdemo.util.PackedOutput;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Adapter for RecyclerView, that displays material design expansion panels
@@ -34,31 +48,95 @@ public abstract class ExpansionPanelsAdapter extends RecyclerView.Adapter
         SUMMARY, DETAILS, ACTIONS
     }
 
+    /**
+     * SINGLE mode keeps at most one panel expanded (accordion), MULTIPLE mode
+     * lets any number of panels be expanded.
+     */
+    public enum ExpansionMode {
+        SINGLE, MULTIPLE
+    }
+
+    /**
+     * Payloads used for partial panel updates. EXPAND_STATE means only the
+     * expansion state of the panel, or the margins that go with it, changed;
+     * CONTENT means the data shown by the panel changed.
+     */
+    public enum Payload {
+        EXPAND_STATE, CONTENT
+    }
+
+    private static final List<Object> NO_PAYLOADS = Collections.emptyList();
+    private static final ViewHolderType[] HOLDER_TYPES = ViewHolderType.values();
+    private static final int DEFAULT_MAX_RECYCLED_PANELS = 5;
+    // A quarter of a 60 fps frame.
+    private static final long DEFAULT_BIND_BUDGET_NS = 4000000;
+    private static final String KEY_EXPANSION_STATE = "ExpansionPanelsAdapter.expansion";
+
     protected Resources mResources;
-    private ViewGroup mSceneRoot;
-    private Transition mTransition;
+    private ExpansionItemAnimator mItemAnimator;
     private int mMarginCollapsed, mMarginExpanded;
-    private long mTransitionDuration;
-    private int mExpandedPanelPos = RecyclerView.NO_POSITION;
+    // Top and bottom margins per preset, see marginPreset().
+    private int[] mPresetTopMargins, mPresetBottomMargins;
+    private long mAnimationDuration;
+    private ExpansionMode mExpansionMode = ExpansionMode.SINGLE;
+    private LongHashSet mExpandedIds = new LongHashSet();
+    private boolean mAllExpanded;
+    private long mExpandedId;
+    private int mExpandedPosHint = RecyclerView.NO_POSITION;
+    // Panels toggled since the last frame, with their position hints.
+    private LongIntMap mToggledIds = new LongIntMap();
+    private boolean mToggleFrameScheduled;
+    private RecyclerView mRecyclerView;
+    private final DeferredBindScheduler mBindScheduler = new DeferredBindScheduler(
+            new DeferredBindScheduler.Binder() {
+                @Override
+                public void bindDeferred(ViewHolder holder) {
+                    bindDeferredContent(holder);
+                }
+            }, DEFAULT_BIND_BUDGET_NS);
+    private final Choreographer.FrameCallback mToggleFrameCallback =
+            new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    mToggleFrameScheduled = false;
+                    dispatchToggles();
+                }
+            };
+    private List<PanelModel> mPanels = Collections.emptyList();
+    // Position of each published panel by its ID, built with the list's diff.
+    private LongIntMap mPanelPositions = new LongIntMap();
+    private int mPanelsGeneration;
+    private PagedPanelList mPagedPanels;
+    private boolean mLazyContent = true;
+    private ContentViewPool mContentPool = new ContentViewPool();
+    private final AtomicInteger mCreatedCount = new AtomicInteger();
+    private final AtomicInteger mPreCreatedCount = new AtomicInteger();
+    private Bundle mPendingState;
+    private PanelMetricsListener mMetrics;
+    private MetricsObserver mMetricsObserver;
+    private LatencyHistogram mExpandLatency = new LatencyHistogram();
+    private long mExpandRequestId, mExpandRequestNs;
 
     /**
      * Public constructor
      * @param resources - app resources
-     * @param sceneRoot - scene's root view
      */
-    public ExpansionPanelsAdapter(Resources resources, ViewGroup sceneRoot) {
+    public ExpansionPanelsAdapter(Resources resources) {
         mResources = resources;
-        mSceneRoot = sceneRoot;
         readResourceValues(resources);
-        setupTransition();
+        setupItemAnimator();
     }
 
     /**
      * Subclasses implement this method to supply view-holders of the given type.
-     * @param parent - parent layout
-     * @param viewType - view type
+     * Details and actions are requested only when a panel is expanded and the
+     * pool has no view-holder of the requested type, unless lazy content
+     * creation is disabled.
+     * @param parent - container layout the view will be embedded into
+     * @param viewType - content view type, see getContentViewType()
      * @param holderType - view-holder type
-     * @param masterViewHolder - the master VH that hosts this VH (can used
+     * @param masterViewHolder - the master VH that hosts this VH first (content
+     *                         VHs move between masters, use getPanelPosition()
      *                         to get the adapter position)
      * @return created view holder
      */
@@ -74,151 +152,1038 @@ public abstract class ExpansionPanelsAdapter extends RecyclerView.Adapter
     protected abstract void onBindViewHolder(RecyclerView.ViewHolder holder,
                                              int position, ViewHolderType holderType);
 
+    /**
+     * Binds view-holders of the given type with a list of partial update
+     * payloads. The default implementation performs a full bind; subclasses
+     * can override it to skip the work that the payloads don't require.
+     * @param holder - view-holder to bind
+     * @param position - position in the data-set
+     * @param holderType - view-holder type
+     * @param payloads - non-empty list of payloads
+     */
+    protected void onBindViewHolder(RecyclerView.ViewHolder holder, int position,
+                                    ViewHolderType holderType, List<Object> payloads) {
+        onBindViewHolder(holder, position, holderType);
+    }
+
+    /**
+     * Returns the view type of the panel's content of the given type. Content
+     * view-holders are pooled and reused per (view-holder type, view type), so
+     * panels of different kinds should return different view types.
+     * @param position - position in the data-set
+     * @param holderType - view-holder type
+     * @return content view type, 0 by default
+     */
+    protected int getContentViewType(int position, ViewHolderType holderType) {
+        return 0;
+    }
+
+    /**
+     * Returns the adapter position of the panel that hosts the content
+     * view-holder.
+     * @param contentHolder - summary, details or actions view-holder
+     * @return adapter position, or NO_POSITION if the holder is not attached
+     */
+    protected static int getPanelPosition(RecyclerView.ViewHolder contentHolder) {
+        ViewHolder master = (ViewHolder) contentHolder.itemView.getTag(
+                R.id.tag_master_view_holder);
+        return (master == null) ? RecyclerView.NO_POSITION : master.getAdapterPosition();
+    }
+
+    /**
+     * Sets the pool, that content view-holders are returned to when their
+     * panel is collapsed or recycled. The pool can be shared between adapters.
+     * Should be called before the adapter is attached to RecyclerView.
+     * @param pool - content view-holders pool
+     */
+    public void setContentViewPool(ContentViewPool pool) {
+        mContentPool = pool;
+    }
+
+    /**
+     * Returns the pool of content view-holders.
+     * @return content view-holders pool
+     */
+    public ContentViewPool getContentViewPool() {
+        return mContentPool;
+    }
+
+    /**
+     * Releases memory according to the trim level, to be called from
+     * ComponentCallbacks2.onTrimMemory(). Evicts pooled content view-holders;
+     * subclasses can override it to release their own caches.
+     * @param level - trim level
+     */
+    public void onTrimMemory(int level) {
+        mContentPool.onTrimMemory(level);
+    }
+
+    /**
+     * Enables or disables lazy attachment of the panels' details and actions.
+     * When enabled (the default), collapsed panels hold only the summary, and
+     * the details and actions are attached on expansion and returned to the
+     * pool on collapse.
+     * Should be called before the adapter is attached to RecyclerView.
+     * @param lazy - true to attach details and actions only to expanded panels
+     */
+    public void setLazyContentEnabled(boolean lazy) {
+        mLazyContent = lazy;
+    }
+
+    /**
+     * Sets the time spent per frame on binding the details and actions of
+     * collapsed panels, which are bound after the layout pass that showed
+     * the panels. Has effect only if lazy content attachment is disabled,
+     * otherwise collapsed panels have no details and actions to bind.
+     * @param budgetNs - time budget per frame, in nanoseconds
+     */
+    public void setDeferredBindBudget(long budgetNs) {
+        mBindScheduler.setBudget(budgetNs);
+    }
+
+    /**
+     * Pre-creates panels and their details and actions off the main thread,
+     * and hands them to the pools on the main thread, so that the first
+     * frames don't have to inflate them. Should be called after the layout
+     * manager is set, typically in onCreate. The views are inflated without
+     * the factories of the activity's layout inflater, which are not
+     * thread-safe, so e.g. AppCompat doesn't substitute its widgets in them.
+     * @param recyclerView - RecyclerView that displays (or will display) the adapter
+     * @param panelCount - number of panels, with their summaries, to pre-create
+     * @param contentCount - number of details and actions to pre-create each
+     */
+    public void preinflate(final RecyclerView recyclerView, final int panelCount,
+                           final int contentCount) {
+        final int viewType = 0;
+        // Subclasses inflate with the inflater of the parent's context. This
+        // parent is never attached, it only supplies the context.
+        final ViewGroup parent = new FrameLayout(
+                new BackgroundInflationContext(recyclerView.getContext()));
+        final AtomicReference<PreinflatedHolders> handoff =
+                new AtomicReference<PreinflatedHolders>();
+        AppExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                // The views are created detached, so they can be created here.
+                // Content needs a panel to be inflated for, so there's at least one.
+                ViewHolder[] panels = new ViewHolder[Math.max(panelCount, 1)];
+                for (int i = 0; i < panels.length; i++) {
+                    mPreCreatedCount.incrementAndGet();
+                    panels[i] = createViewHolder(parent, viewType);
+                }
+                RecyclerView.ViewHolder[][] contents =
+                        new RecyclerView.ViewHolder[HOLDER_TYPES.length][];
+                for (ViewHolderType holderType : HOLDER_TYPES) {
+                    int count = (holderType == ViewHolderType.SUMMARY) ?
+                            panels.length : contentCount;
+                    contents[holderType.ordinal()] = new RecyclerView.ViewHolder[count];
+                    for (int i = 0; i < count; i++) {
+                        contents[holderType.ordinal()][i] =
+                                createContentViewHolder(panels[0], viewType, holderType);
+                    }
+                }
+
+                // Published through the atomic reference, so the main thread
+                // sees the holders fully constructed.
+                handoff.set(new PreinflatedHolders(panels, contents));
+                AppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        PreinflatedHolders holders = handoff.getAndSet(null);
+                        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+                        pool.setMaxRecycledViews(viewType,
+                                Math.max(holders.mPanels.length, DEFAULT_MAX_RECYCLED_PANELS));
+                        for (ViewHolder panel : holders.mPanels) {
+                            pool.putRecycledView(panel);
+                        }
+                        // Pre-created view-holders must not evict each other.
+                        int total = 0;
+                        for (RecyclerView.ViewHolder[] created : holders.mContents) {
+                            total += created.length;
+                        }
+                        mContentPool.setMaxTotalPooledViews(Math.max(
+                                mContentPool.getMaxTotalPooledViews(),
+                                mContentPool.size() + total));
+                        for (ViewHolderType holderType : HOLDER_TYPES) {
+                            RecyclerView.ViewHolder[] created =
+                                    holders.mContents[holderType.ordinal()];
+                            mContentPool.setMaxPooledViews(holderType, viewType,
+                                    Math.max(created.length, ContentViewPool.DEFAULT_MAX_POOLED));
+                            for (RecyclerView.ViewHolder contentVH : created) {
+                                mContentPool.put(holderType, viewType, contentVH);
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns the number of view-holders (panels and their content) created
+     * in advance by preinflate().
+     * @return number of pre-created view-holders
+     */
+    public int getPreCreatedCount() {
+        return mPreCreatedCount.get();
+    }
+
+    /**
+     * Returns the number of view-holders (panels and their content) created
+     * on demand, while RecyclerView was laying out or binding panels.
+     * @return number of view-holders created on demand
+     */
+    public int getOnDemandCount() {
+        return mCreatedCount.get() - mPreCreatedCount.get();
+    }
+
+    /**
+     * Sets the expansion mode. Collapses all panels if the mode changes.
+     * @param mode - SINGLE or MULTIPLE
+     */
+    public void setExpansionMode(ExpansionMode mode) {
+        restorePendingState();
+        if (mExpansionMode != mode) {
+            collapseAll();
+            mExpansionMode = mode;
+        }
+    }
+
+    /**
+     * Returns the expansion mode.
+     * @return SINGLE or MULTIPLE
+     */
+    public ExpansionMode getExpansionMode() {
+        return mExpansionMode;
+    }
+
+    /**
+     * Sets the listener of the timings and counters of creating and binding
+     * panels and their content, expansion animations and change
+     * notifications. Without a listener nothing is timed.
+     * @param listener - metrics listener, or null to remove it
+     */
+    public void setMetricsListener(PanelMetricsListener listener) {
+        if (mMetricsObserver != null) {
+            unregisterAdapterDataObserver(mMetricsObserver);
+            mMetricsObserver = null;
+        }
+        mMetrics = listener;
+        mExpandRequestNs = 0;
+        if (listener != null) {
+            mMetricsObserver = new MetricsObserver();
+            registerAdapterDataObserver(mMetricsObserver);
+        }
+        mItemAnimator.setResizeListener((listener == null) ? null :
+                new ExpansionItemAnimator.ResizeListener() {
+                    @Override
+                    public void onResizeEnded(RecyclerView.ViewHolder holder,
+                                              boolean expanded, long durationNs) {
+                        onPanelResized(holder, expanded, durationNs);
+                    }
+                });
+    }
+
+    /**
+     * Returns a copy of the histogram of expand latencies, the times from
+     * expansion requests to the ends of the expansion animations. Latencies
+     * are recorded only while a metrics listener is set, and only for the
+     * latest request when several panels are expanded at once.
+     * @return copy of the histogram
+     */
+    public LatencyHistogram getExpandLatencyHistogram() {
+        return mExpandLatency.copy();
+    }
+
+    /**
+     * Saves the expansion state into the bundle, in a compact binary form.
+     * Subclasses can override it to save their own state too, typically
+     * called from Activity.onSaveInstanceState().
+     * @param outState - bundle to save the state into
+     */
+    public void onSaveInstanceState(Bundle outState) {
+        restorePendingState();
+        long[] ids = mExpandedIds.toArray();
+        // Sorted IDs are delta-encoded, so sequential IDs take a byte each.
+        Arrays.sort(ids);
+        PackedOutput out = new PackedOutput(4 + ids.length);
+        out.writeInt(mExpansionMode.ordinal());
+        out.writeInt(mAllExpanded ? 1 : 0);
+        out.writeLong(mExpandedId);
+        out.writeInt(ids.length);
+        long previous = 0;
+        for (long id : ids) {
+            out.writeLong(id - previous);
+            previous = id;
+        }
+        outState.putByteArray(KEY_EXPANSION_STATE, out.toByteArray());
+    }
+
+    /**
+     * Restores the state saved by onSaveInstanceState(). The state is decoded
+     * lazily, when the first panel is bound or queried. Should be called
+     * before the adapter is attached to RecyclerView, typically in onCreate.
+     * @param savedState - saved state, or null if there's none
+     */
+    public void onRestoreInstanceState(Bundle savedState) {
+        mPendingState = savedState;
+    }
+
+    /**
+     * Subclasses can override this method to restore the state they saved
+     * in onSaveInstanceState(). Called once, right before the first panel is
+     * bound or queried, so it must not notify changes of the data-set.
+     * @param savedState - saved state
+     */
+    protected void onRestoreState(Bundle savedState) {
+    }
+
+    /**
+     * Checks whether the panel at the given position is expanded.
+     * @param position - position in the data-set
+     * @return true if expanded
+     */
+    public boolean isExpanded(int position) {
+        restorePendingState();
+        // In the expand-all state the set holds the collapsed panels.
+        return mExpandedIds.contains(getPanelId(position)) != mAllExpanded;
+    }
+
+    /**
+     * Expands or collapses the panel at the given position. In SINGLE mode
+     * expanding a panel collapses the one that was expanded. The state
+     * changes right away, but the panel is rebound on the next frame, once
+     * for all the requests made until then, and not at all if it ends up
+     * in the state it's shown in.
+     * @param position - position in the data-set
+     * @param expanded - true to expand the panel
+     */
+    public void setExpanded(int position, boolean expanded) {
+        setExpanded(getPanelId(position), position, expanded);
+    }
+
+    /**
+     * Expands or collapses the panel with the given ID, which may be in a
+     * list that was submitted but not published yet. In SINGLE mode
+     * expanding a panel collapses the one that was expanded.
+     * @param id - panel ID
+     * @param expanded - true to expand the panel
+     */
+    public void setExpandedById(long id, boolean expanded) {
+        setExpanded(id, findPosition(id, mExpandedPosHint), expanded);
+    }
+
+    /**
+     * Expands all panels. Has effect only in MULTIPLE mode.
+     */
+    public void expandAll() {
+        restorePendingState();
+        if (mExpansionMode != ExpansionMode.MULTIPLE
+                || (mAllExpanded && mExpandedIds.isEmpty())) {
+            return;
+        }
+        mAllExpanded = true;
+        mExpandedIds.clear();
+        mToggledIds.clear();
+        notifyAllPanelsChanged();
+    }
+
     /**
      * Collapses all expansion panels.
      */
-    protected void collapseAll() {
-        mExpandedPanelPos = RecyclerView.NO_POSITION;
-        TransitionManager.beginDelayedTransition(mSceneRoot, mTransition);
+    public void collapseAll() {
+        restorePendingState();
+        if (!mAllExpanded && mExpandedIds.isEmpty()) {
+            return;
+        }
+        if (mExpansionMode == ExpansionMode.SINGLE) {
+            // Only one panel to rebind, if it's still in the data-set.
+            if (mExpandedIds.contains(mExpandedId)) {
+                scheduleToggle(mExpandedId, mExpandedPosHint);
+            }
+            mExpandedIds.clear();
+            mExpandedPosHint = RecyclerView.NO_POSITION;
+            return;
+        }
+        mAllExpanded = false;
+        mExpandedIds.clear();
+        mToggledIds.clear();
+        notifyAllPanelsChanged();
+    }
+
+    /**
+     * Publishes a new list of panel models. The differences from the current
+     * list are computed on a background thread and dispatched as minimal
+     * notifications on the main thread; a list submitted before the previous
+     * one was published replaces it. Subclasses that use models should call
+     * setHasStableIds(true) in their constructor. Should be called on the
+     * main thread. Replaces the data source, if there's one.
+     * @param panels - panel models, the list is copied
+     */
+    public void submitPanels(List<? extends PanelModel> panels) {
+        if (mPagedPanels != null) {
+            setPanelDataSource(null, 0, 0, 0);
+        }
+        final int generation = ++mPanelsGeneration;
+        final List<PanelModel> oldPanels = mPanels;
+        final List<PanelModel> newPanels = Collections.unmodifiableList(
+                new ArrayList<PanelModel>(panels));
+
+        // Nothing to compare, publish right away.
+        if (oldPanels.isEmpty() || newPanels.isEmpty()) {
+            setPublishedPanels(newPanels, positionsOf(newPanels));
+            if (!oldPanels.isEmpty()) {
+                notifyItemRangeRemoved(0, oldPanels.size());
+            } else if (!newPanels.isEmpty()) {
+                notifyItemRangeInserted(0, newPanels.size());
+            }
+            return;
+        }
+
+        AppExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                        new PanelsDiffCallback(oldPanels, newPanels), true);
+                final LongIntMap positions = positionsOf(newPanels);
+                AppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mPanelsGeneration) {
+                            // A newer list was submitted meanwhile.
+                            return;
+                        }
+                        setPublishedPanels(newPanels, positions);
+                        result.dispatchUpdatesTo(ExpansionPanelsAdapter.this);
+                        notifyFirstPanelChanged(oldPanels, newPanels);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Sets the source to load panels from, page by page, on a background
+     * thread. Pages within the prefetch distance of bound panels are loaded
+     * ahead of the scroll; at most maxPages pages are kept in memory, the
+     * ones farthest from the bound panels are evicted. Panels that are not
+     * loaded yet are bound with a null model, but they have their IDs from
+     * the source, so they keep their expansion state across loads and
+     * evictions. Replaces the submitted panels.
+     * @param source - source of panels, or null to remove it
+     * @param pageSize - number of panels per page
+     * @param prefetchDistance - number of panels to load ahead of bound panels
+     * @param maxPages - maximal number of pages kept in memory
+     */
+    public void setPanelDataSource(PanelDataSource source, int pageSize,
+                                   int prefetchDistance, int maxPages) {
+        if (mPagedPanels != null) {
+            mPagedPanels.close();
+            mPagedPanels = null;
+        }
+        mPanelsGeneration++;
+        mPanels = Collections.emptyList();
+        mPanelPositions.clear();
+        mExpandedIds.clear();
+        mAllExpanded = false;
         notifyDataSetChanged();
+
+        if (source != null) {
+            mPagedPanels = new PagedPanelList(source, pageSize, prefetchDistance, maxPages,
+                    new PagedPanelList.Callback() {
+                        @Override
+                        public void onCountLoaded(int count) {
+                            notifyItemRangeInserted(0, count);
+                        }
+
+                        @Override
+                        public void onRangeLoaded(int start, int count) {
+                            notifyItemRangeChanged(start, count, Payload.CONTENT);
+                        }
+                    });
+            mPagedPanels.start();
+        }
+    }
+
+    /**
+     * Returns the published list of panel models.
+     * @return unmodifiable list of panel models, empty with a data source
+     */
+    public <T extends PanelModel> List<T> getPanels() {
+        //noinspection unchecked
+        return (List<T>) mPanels;
+    }
+
+    /**
+     * Returns the panel model at the given position. With a data source, this
+     * also loads the pages around the position.
+     * @param position - position in the data-set
+     * @return panel model, or null if it's not loaded from the data source yet
+     */
+    public <T extends PanelModel> T getPanel(int position) {
+        //noinspection unchecked
+        return (T) ((mPagedPanels != null) ?
+                mPagedPanels.get(position) : mPanels.get(position));
+    }
+
+    /**
+     * Returns the stable ID of the panel, that keys its expansion state.
+     * @param position - position in the data-set
+     * @return item ID if the adapter has stable IDs, the position otherwise
+     */
+    protected long getPanelId(int position) {
+        return hasStableIds() ? getItemId(position) : position;
+    }
+
+    /**
+     * Notifies that the content of the panel at the given position changed.
+     * Needed for changes that aren't part of the panel model: a panel is
+     * rebound with the same model object only for a non-empty payload.
+     * @param position - position in the data-set
+     */
+    protected void notifyPanelContentChanged(int position) {
+        notifyItemChanged(position, Payload.CONTENT);
+    }
+
+    /**
+     * Checks whether the payloads carry only the given payload type.
+     * @param payloads - list of payloads
+     * @param payload - payload type
+     * @return true if all the payloads are of the given type
+     */
+    protected static boolean containsOnly(List<Object> payloads, Payload payload) {
+        for (int i = 0; i < payloads.size(); i++) {
+            if (payloads.get(i) != payload) {
+                return false;
+            }
+        }
+        return !payloads.isEmpty();
     }
 
     /** Recycler View Adapter methods */
 
+    @Override
+    public int getItemCount() {
+        return (mPagedPanels != null) ? mPagedPanels.size() : mPanels.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        if (mPagedPanels != null) {
+            return mPagedPanels.getPanelId(position);
+        }
+        return mPanels.get(position).getPanelId();
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        // Panels animate their own expansion, and only the affected ones.
+        recyclerView.setItemAnimator(mItemAnimator);
+        mRecyclerView = recyclerView;
+        mBindScheduler.setRecyclerView(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        if (mRecyclerView == recyclerView) {
+            mRecyclerView = null;
+            mBindScheduler.setRecyclerView(null);
+        }
+    }
+
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        long start = (mMetrics != null) ? System.nanoTime() : 0;
+        mCreatedCount.incrementAndGet();
         View view = LayoutInflater.from(parent.getContext()).inflate(
                 R.layout.expansion_panel, parent, false);
 
         ViewHolder holder = new ViewHolder(view, new ItemClickListener() {
                     public void onItemClick(int position) {
-                        mExpandedPanelPos = (mExpandedPanelPos == position) ?
-                                RecyclerView.NO_POSITION : position;
-                        TransitionManager.beginDelayedTransition(mSceneRoot, mTransition);
-                        notifyDataSetChanged();
+                        if (position == RecyclerView.NO_POSITION) {
+                            // The panel is being removed or re-laid out.
+                            return;
+                        }
+                        setExpanded(position, !isExpanded(position));
                     }
                 }
         );
 
-        // Create view-holders in the subclass.
-        RecyclerView.ViewHolder summaryVH =
-                onCreateViewHolder(parent, viewType, ViewHolderType.SUMMARY, holder);
-        RecyclerView.ViewHolder detailsVH =
-                onCreateViewHolder(parent, viewType, ViewHolderType.DETAILS, holder);
-        RecyclerView.ViewHolder actionsVH =
-                onCreateViewHolder(parent, viewType, ViewHolderType.ACTIONS, holder);
-
-        // Store them in the master view-holder for later.
-        holder.setSummaryVH(summaryVH);
-        holder.setDetailsVH(detailsVH);
-        holder.setActionsVH(actionsVH);
-
-        // Embed the summary view.
-        FrameLayout summaryContainer = lookup(view, R.id.fl_summary_container);
-        Assert.notNull(summaryContainer, "View not found: fl_summary_container");
-        summaryContainer.addView(summaryVH.itemView);
-
-        // Embed the details view.
-        FrameLayout detailsContainer = lookup(view, R.id.fl_details_container);
-        Assert.notNull(detailsContainer, "View not found: fl_details_container");
-        detailsContainer.addView(detailsVH.itemView);
-
-        // Embed the actions view.
-        FrameLayout actionsContainer = lookup(view, R.id.fl_actions_container);
-        Assert.notNull(actionsContainer, "View not found: fl_actions_container");
-        actionsContainer.addView(actionsVH.itemView);
-
-        // Remeasure the size
-        view.requestLayout();
-
+        // Content view-holders are attached on bind, when their type is known.
+        if (mMetrics != null) {
+            mMetrics.onPanelCreated(System.nanoTime() - start);
+        }
         return holder;
     }
 
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
-        // Bind view-holders in the subclass.
-        onBindViewHolder(holder.getSummaryVH(), position, ViewHolderType.SUMMARY);
-        onBindViewHolder(holder.getDetailsVH(), position, ViewHolderType.DETAILS);
-        onBindViewHolder(holder.getActionsVH(), position, ViewHolderType.ACTIONS);
+        onBindViewHolder(holder, position, NO_PAYLOADS);
+    }
 
-        boolean expanded = position == mExpandedPanelPos;
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position, List<Object> payloads) {
+        boolean expanded = isExpanded(position);
+        if (expanded && mExpansionMode == ExpansionMode.SINGLE) {
+            mExpandedPosHint = position;
+        }
 
-        // Show the details and actions only in expanded panels.
-        int visibility = expanded ? View.VISIBLE : View.GONE;
-        holder.getDetailsContainer().setVisibility(visibility);
-        holder.getActionsContainer().setVisibility(visibility);
-        holder.getDivider().setVisibility(visibility);
-        holder.getExpandIcon().setSelected(expanded);
-
-        // Set the margins according to state.
-        ViewGroup.MarginLayoutParams mlp = (ViewGroup.MarginLayoutParams)
-                holder.getCardView().getLayoutParams();
-        if (expanded) {
-            if (position == 0) {
-                // First panel's top margin should be regular.
-                mlp.setMargins(mMarginCollapsed, mMarginCollapsed,
-                        mMarginCollapsed, mMarginExpanded);
+        // Models are immutable, the same model object shows the same content.
+        PanelModel panel = getPanel(position);
+        boolean sameContent = panel != null && holder.isBoundTo(position, panel);
+        if (sameContent && expanded == holder.isBoundExpanded()
+                && containsOnly(payloads, Payload.EXPAND_STATE)) {
+            return;
+        }
+
+        // Hidden content is bound after the layout pass. Prefetch binds run
+        // in idle time already, so they bind everything.
+        boolean defer = !expanded && mRecyclerView != null && mRecyclerView.isComputingLayout();
+        boolean deferred = false;
+        for (ViewHolderType holderType : HOLDER_TYPES) {
+            if (holderType == ViewHolderType.SUMMARY || expanded || !mLazyContent) {
+                // Newly attached view-holders need a full bind.
+                boolean attached = attachContent(holder, position, holderType);
+                boolean stale = holderType != ViewHolderType.SUMMARY
+                        && holder.isContentDeferred();
+                if (!attached && !stale && sameContent && payloads.isEmpty()) {
+                    continue;
+                }
+                if (defer && holderType != ViewHolderType.SUMMARY
+                        && (attached || stale || !sameContent)) {
+                    deferred = true;
+                } else {
+                    bindContent(holder.getContentVH(holderType), position, holderType,
+                            (attached || stale) ? NO_PAYLOADS : payloads);
+                }
             } else {
-                mlp.setMargins(mMarginCollapsed, mMarginExpanded,
-                        mMarginCollapsed, mMarginExpanded);
+                releaseContent(holder, holderType);
             }
+        }
+        if (deferred) {
+            holder.setContentDeferred(true);
+            mBindScheduler.schedule(holder);
+        } else if (!defer && holder.isContentDeferred()) {
+            holder.setContentDeferred(false);
+            mBindScheduler.cancel(holder);
+        }
+        bindExpansionState(holder, position, expanded);
+        holder.setBound(position, panel, expanded);
+    }
+
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        holder.setBound(RecyclerView.NO_POSITION, null, false);
+        holder.setContentDeferred(false);
+        mBindScheduler.cancel(holder);
+        // Let other panels reuse the details and actions.
+        releaseContent(holder, ViewHolderType.DETAILS);
+        releaseContent(holder, ViewHolderType.ACTIONS);
+    }
+
+    /** Private methods */
+
+    private void restorePendingState() {
+        if (mPendingState == null) {
+            return;
+        }
+        Bundle savedState = mPendingState;
+        mPendingState = null;
+        byte[] data = savedState.getByteArray(KEY_EXPANSION_STATE);
+        if (data != null) {
+            restoreExpansionState(data);
+        }
+        onRestoreState(savedState);
+    }
+
+    private void restoreExpansionState(byte[] data) {
+        try {
+            PackedInput in = new PackedInput(data);
+            if (in.readInt() != mExpansionMode.ordinal()) {
+                // Saved in another mode, the state doesn't apply.
+                return;
+            }
+            boolean allExpanded = in.readInt() != 0;
+            long expandedId = in.readLong();
+            // An ID takes a byte at least.
+            int count = in.readCount(1);
+            LongHashSet ids = new LongHashSet(count);
+            long id = 0;
+            for (int i = 0; i < count; i++) {
+                id += in.readLong();
+                ids.add(id);
+            }
+            mAllExpanded = allExpanded;
+            mExpandedId = expandedId;
+            mExpandedIds = ids;
+            mExpandedPosHint = RecyclerView.NO_POSITION;
+        } catch (IllegalArgumentException e) {
+            // Keep the default state.
+        }
+    }
+
+    private void setPublishedPanels(List<PanelModel> panels, LongIntMap positions) {
+        mPanels = panels;
+        mPanelPositions = positions;
+
+        // Forget the state of the panels that were removed.
+        for (long id : mExpandedIds.toArray()) {
+            if (!positions.containsKey(id)) {
+                mExpandedIds.remove(id);
+            }
+        }
+    }
+
+    private static LongIntMap positionsOf(List<PanelModel> panels) {
+        LongIntMap positions = new LongIntMap(panels.size());
+        for (int i = 0; i < panels.size(); i++) {
+            positions.put(panels.get(i).getPanelId(), i);
+        }
+        return positions;
+    }
+
+    private void notifyFirstPanelChanged(List<PanelModel> oldPanels,
+                                         List<PanelModel> newPanels) {
+        // Moved panels aren't rebound, but the first panel has margins of
+        // its own, so the old and the new first panel are.
+        long oldFirstId = oldPanels.get(0).getPanelId();
+        if (newPanels.get(0).getPanelId() == oldFirstId) {
+            return;
+        }
+        notifyItemChanged(0, Payload.EXPAND_STATE);
+        int oldFirst = mPanelPositions.get(oldFirstId, RecyclerView.NO_POSITION);
+        if (oldFirst != RecyclerView.NO_POSITION) {
+            notifyItemChanged(oldFirst, Payload.EXPAND_STATE);
+        }
+    }
+
+    private void notifyAllPanelsChanged() {
+        // RecyclerView rebinds only the holders it has, so a single range
+        // notification costs as much as notifying the bound panels one by one.
+        notifyItemRangeChanged(0, getItemCount(), Payload.EXPAND_STATE);
+    }
+
+    private void setExpanded(long id, int position, boolean expanded) {
+        restorePendingState();
+        if ((mExpandedIds.contains(id) != mAllExpanded) == expanded) {
+            return;
+        }
+        if (expanded && mExpansionMode == ExpansionMode.SINGLE) {
+            collapseAll();
+        }
+        if (expanded != mAllExpanded) {
+            mExpandedIds.add(id);
         } else {
-            if (position == 0) {
-                // First panel's top margin should be regular.
-                mlp.setMargins(mMarginCollapsed, mMarginCollapsed,
-                        mMarginCollapsed, mMarginCollapsed);
-            } else {
-                mlp.setMargins(mMarginCollapsed, 0,
-                        mMarginCollapsed, mMarginCollapsed);
+            mExpandedIds.remove(id);
+        }
+        if (expanded) {
+            // Remembered to find the expanded panel quickly in SINGLE mode.
+            mExpandedId = id;
+            mExpandedPosHint = position;
+            if (mMetrics != null) {
+                mExpandRequestId = id;
+                mExpandRequestNs = System.nanoTime();
             }
         }
+        scheduleToggle(id, position);
     }
 
-    /** Private methods */
+    private void bindDeferredContent(ViewHolder holder) {
+        int position = holder.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) {
+            // Rebound after the pending data-set change, still deferred.
+            return;
+        }
+        holder.setContentDeferred(false);
+        for (ViewHolderType holderType : HOLDER_TYPES) {
+            if (holderType != ViewHolderType.SUMMARY && holder.getContentVH(holderType) != null) {
+                bindContent(holder.getContentVH(holderType), position, holderType, NO_PAYLOADS);
+            }
+        }
+    }
+
+    private void scheduleToggle(long id, int positionHint) {
+        // Taps arriving before the next frame only change the target state,
+        // which is dispatched once, on that frame.
+        mToggledIds.put(id, positionHint);
+        if (!mToggleFrameScheduled) {
+            mToggleFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mToggleFrameCallback);
+        }
+    }
+
+    private void dispatchToggles() {
+        long[] ids = mToggledIds.toKeyArray();
+        for (long id : ids) {
+            int position = findPosition(id, mToggledIds.get(id, RecyclerView.NO_POSITION));
+            if (position == RecyclerView.NO_POSITION) {
+                // Removed meanwhile, or not published yet.
+                continue;
+            }
+            // Toggled back to the state on screen, e.g. by a double tap.
+            RecyclerView.ViewHolder holder = (mRecyclerView == null) ?
+                    null : mRecyclerView.findViewHolderForAdapterPosition(position);
+            if (holder instanceof ViewHolder
+                    && ((ViewHolder) holder).isBoundTo(position, getPanel(position))
+                    && ((ViewHolder) holder).isBoundExpanded() == isExpanded(position)) {
+                continue;
+            }
+            notifyItemChanged(position, Payload.EXPAND_STATE);
+        }
+        mToggledIds.clear();
+    }
+
+    private int findPosition(long id, int hint) {
+        if (hint >= 0 && hint < getItemCount() && getPanelId(hint) == id) {
+            return hint;
+        }
+        // The hint is stale after the data-set changed.
+        if (!hasStableIds()) {
+            // Panels are keyed by their positions.
+            return (id >= 0 && id < getItemCount()) ? (int) id : RecyclerView.NO_POSITION;
+        }
+        if (mPagedPanels != null) {
+            // A panel that isn't loaded isn't bound either, nothing to rebind.
+            return mPagedPanels.positionOf(id, RecyclerView.NO_POSITION);
+        }
+        return mPanelPositions.get(id, RecyclerView.NO_POSITION);
+    }
+
+    private boolean attachContent(ViewHolder holder, int position, ViewHolderType holderType) {
+        int viewType = getContentViewType(position, holderType);
+        if (holder.getContentVH(holderType) != null) {
+            if (holder.getContentViewType(holderType) == viewType) {
+                return false;
+            }
+            releaseContent(holder, holderType);
+        }
+
+        // Reuse a pooled view-holder, or create one in the subclass.
+        RecyclerView.ViewHolder contentVH = mContentPool.get(holderType, viewType);
+        if (contentVH == null) {
+            long start = (mMetrics != null) ? System.nanoTime() : 0;
+            mCreatedCount.incrementAndGet();
+            contentVH = onCreateViewHolder(holder.getPanel(), viewType, holderType, holder);
+            if (mMetrics != null) {
+                mMetrics.onContentCreated(holderType, System.nanoTime() - start);
+            }
+        }
+
+        // Store it in the master view-holder, which embeds its view.
+        contentVH.itemView.setTag(R.id.tag_master_view_holder, holder);
+        holder.setContentVH(holderType, contentVH, viewType);
+        return true;
+    }
+
+    private RecyclerView.ViewHolder createContentViewHolder(ViewHolder host, int viewType,
+                                                           ViewHolderType holderType) {
+        mCreatedCount.incrementAndGet();
+        mPreCreatedCount.incrementAndGet();
+        return onCreateViewHolder(host.getPanel(), viewType, holderType, host);
+    }
+
+    private void releaseContent(ViewHolder holder, ViewHolderType holderType) {
+        RecyclerView.ViewHolder contentVH = holder.getContentVH(holderType);
+        if (contentVH == null) {
+            return;
+        }
+        int viewType = holder.getContentViewType(holderType);
+        holder.setContentVH(holderType, null, 0);
+        contentVH.itemView.setTag(R.id.tag_master_view_holder, null);
+        mContentPool.put(holderType, viewType, contentVH);
+    }
+
+    private void bindContent(RecyclerView.ViewHolder contentVH, int position,
+                             ViewHolderType holderType, List<Object> payloads) {
+        long start = (mMetrics != null) ? System.nanoTime() : 0;
+        if (payloads.isEmpty()) {
+            onBindViewHolder(contentVH, position, holderType);
+        } else {
+            // Let the subclass decide what the payloads require.
+            onBindViewHolder(contentVH, position, holderType, payloads);
+        }
+        if (mMetrics != null) {
+            mMetrics.onContentBound(holderType, System.nanoTime() - start);
+        }
+    }
+
+    private void onPanelResized(RecyclerView.ViewHolder holder, boolean expanded,
+                                long durationNs) {
+        if (mMetrics == null) {
+            return;
+        }
+        mMetrics.onExpansionAnimated(expanded, durationNs);
+        int position = holder.getAdapterPosition();
+        if (expanded && mExpandRequestNs != 0 && position != RecyclerView.NO_POSITION
+                && getPanelId(position) == mExpandRequestId) {
+            long latencyNs = System.nanoTime() - mExpandRequestNs;
+            mExpandRequestNs = 0;
+            mExpandLatency.record(latencyNs);
+            mMetrics.onExpandLatency(mExpandRequestId, latencyNs);
+        }
+    }
+
+    private void bindExpansionState(ViewHolder holder, int position, boolean expanded) {
+        // Show the details and actions only in expanded panels.
+        holder.getPanel().setExpanded(expanded);
+
+        // Set the margins according to state, if they changed.
+        int preset = marginPreset(position, expanded);
+        if (holder.getMarginPreset() != preset) {
+            holder.setMarginPreset(preset);
+            ViewGroup.MarginLayoutParams mlp = (ViewGroup.MarginLayoutParams)
+                    holder.getPanel().getLayoutParams();
+            mlp.setMargins(mMarginCollapsed, mPresetTopMargins[preset],
+                    mMarginCollapsed, mPresetBottomMargins[preset]);
+        }
+    }
+
+    private static int marginPreset(int position, boolean expanded) {
+        // First panel's top margin should be regular.
+        return (expanded ? 2 : 0) + (position == 0 ? 1 : 0);
+    }
 
     private void readResourceValues(Resources res) {
         mMarginCollapsed = (int) res.getDimension(R.dimen.expansion_panel_margin_collapsed);
         mMarginExpanded = (int) res.getDimension(R.dimen.expansion_panel_margin_expanded);
-        mTransitionDuration = res.getInteger(android.R.integer.config_shortAnimTime);
+        mPresetTopMargins = new int[] {0, mMarginCollapsed, mMarginExpanded, mMarginCollapsed};
+        mPresetBottomMargins = new int[] {mMarginCollapsed, mMarginCollapsed,
+                mMarginExpanded, mMarginExpanded};
+        mAnimationDuration = res.getInteger(android.R.integer.config_shortAnimTime);
     }
 
-    private void setupTransition() {
-        mTransition = new AutoTransition();
-        mTransition.setDuration(mTransitionDuration);
-        mTransition.setInterpolator(new AccelerateDecelerateInterpolator());
+    private void setupItemAnimator() {
+        mItemAnimator = new ExpansionItemAnimator(mAnimationDuration,
+                new AccelerateDecelerateInterpolator());
     }
 
-    private static <T extends View> T lookup(View rootView, @IdRes int viewId) {
-        //noinspection unchecked
-        return (T) rootView.findViewById(viewId);
+    private static class PanelsDiffCallback extends DiffUtil.Callback {
+        private final List<PanelModel> mOldPanels, mNewPanels;
+
+        PanelsDiffCallback(List<PanelModel> oldPanels, List<PanelModel> newPanels) {
+            mOldPanels = oldPanels;
+            mNewPanels = newPanels;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldPanels.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewPanels.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldPanels.get(oldItemPosition).getPanelId()
+                    == mNewPanels.get(newItemPosition).getPanelId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldPanels.get(oldItemPosition).hasSameContent(
+                    mNewPanels.get(newItemPosition));
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            // Changed panels keep their view-holders and expansion state.
+            return Payload.CONTENT;
+        }
+    }
+
+    /**
+     * Context of the views created by preinflate(). Off the main thread it
+     * supplies a layout inflater of its own, cloned from the application's,
+     * which has no factories; on the main thread, e.g. when the views inflate
+     * more views later, the one of the wrapped context.
+     */
+    private static class BackgroundInflationContext extends ContextWrapper {
+        private final LayoutInflater mInflater;
+
+        BackgroundInflationContext(Context base) {
+            super(base);
+            // Cloned into this context, so the views are themed like the base's.
+            mInflater = LayoutInflater.from(base.getApplicationContext()).cloneInContext(this);
+        }
+
+        @Override
+        public Object getSystemService(String name) {
+            if (LAYOUT_INFLATER_SERVICE.equals(name)
+                    && Looper.myLooper() != Looper.getMainLooper()) {
+                return mInflater;
+            }
+            return super.getSystemService(name);
+        }
+    }
+
+    /**
+     * View-holders created by preinflate(), handed to the main thread.
+     */
+    private static class PreinflatedHolders {
+        final ViewHolder[] mPanels;
+        final RecyclerView.ViewHolder[][] mContents;
+
+        PreinflatedHolders(ViewHolder[] panels, RecyclerView.ViewHolder[][] contents) {
+            mPanels = panels;
+            mContents = contents;
+        }
+    }
+
+    /**
+     * Reports the change notifications to the metrics listener.
+     */
+    private class MetricsObserver extends RecyclerView.AdapterDataObserver {
+        @Override
+        public void onChanged() {
+            mMetrics.onNotify(PanelMetricsListener.NotifyType.DATA_SET_CHANGED, -1);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            mMetrics.onNotify(PanelMetricsListener.NotifyType.RANGE_CHANGED, itemCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mMetrics.onNotify(PanelMetricsListener.NotifyType.RANGE_INSERTED, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mMetrics.onNotify(PanelMetricsListener.NotifyType.RANGE_REMOVED, itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mMetrics.onNotify(PanelMetricsListener.NotifyType.RANGE_MOVED, itemCount);
+        }
     }
 
     private interface ItemClickListener {
         void onItemClick(int position);
     }
 
+    @BindLayout("expansion_panel")
     static class ViewHolder extends RecyclerView.ViewHolder {
-        private RecyclerView.ViewHolder mSummaryVH;
-        private RecyclerView.ViewHolder mDetailsVH;
-        private RecyclerView.ViewHolder mActionsVH;
-        private CardView mCardView;
-        private ImageView mExpandIcon;
-        private ViewGroup mDetailsContainer, mActionsContainer;
-        private View mDivider;
+        private RecyclerView.ViewHolder[] mContentVHs =
+                new RecyclerView.ViewHolder[HOLDER_TYPES.length];
+        private int[] mContentViewTypes = new int[HOLDER_TYPES.length];
+        @BindView("cv_expansion_panel") ExpansionPanelLayout mPanel;
+        private int mBoundPosition = RecyclerView.NO_POSITION;
+        private PanelModel mBoundPanel;
+        private boolean mBoundExpanded;
+        private int mMarginPreset = -1;
+        private boolean mContentDeferred;
 
         ViewHolder(View itemView, final ItemClickListener clickListener) {
             super(itemView);
 
-            mCardView = lookup(itemView, R.id.cv_expansion_panel);
-            Assert.notNull(mCardView, "View not found: cv_expansion_panel");
-            mExpandIcon = lookup(itemView, R.id.iv_expand_icon);
-            Assert.notNull(mExpandIcon, "View not found: iv_expand_icon");
-            mDetailsContainer = lookup(itemView, R.id.fl_details_container);
-            Assert.notNull(mDetailsContainer, "View not found: fl_details_container");
-            mDivider = lookup(itemView, R.id.view_divider);
-            Assert.notNull(mDivider, "View not found: view_divider");
-            mActionsContainer = lookup(itemView, R.id.fl_actions_container);
-            Assert.notNull(mActionsContainer, "View not found: fl_actions_container");
+            ExpansionPanelsAdapter_ViewHolder_Binder.bind(this, itemView);
 
             itemView.setOnClickListener(new View.OnClickListener() {
                 @Override
@@ -230,48 +1195,66 @@ public abstract class ExpansionPanelsAdapter extends RecyclerView.Adapter
             });
         }
 
-        void setSummaryVH(RecyclerView.ViewHolder viewHolder) {
-            mSummaryVH = viewHolder;
+        void setContentVH(ViewHolderType holderType, RecyclerView.ViewHolder viewHolder,
+                          int viewType) {
+            mContentVHs[holderType.ordinal()] = viewHolder;
+            mContentViewTypes[holderType.ordinal()] = viewType;
+
+            // Embed the view in its slot of the panel.
+            View view = (viewHolder == null) ? null : viewHolder.itemView;
+            switch (holderType) {
+                case SUMMARY:
+                    mPanel.setSummaryView(view);
+                    break;
+                case DETAILS:
+                    mPanel.setDetailsView(view);
+                    break;
+                case ACTIONS:
+                    mPanel.setActionsView(view);
+                    break;
+            }
         }
 
-        void setDetailsVH(RecyclerView.ViewHolder viewHolder) {
-            mDetailsVH = viewHolder;
+        RecyclerView.ViewHolder getContentVH(ViewHolderType holderType) {
+            return mContentVHs[holderType.ordinal()];
         }
 
-        void setActionsVH(RecyclerView.ViewHolder viewHolder) {
-            mActionsVH = viewHolder;
+        int getContentViewType(ViewHolderType holderType) {
+            return mContentViewTypes[holderType.ordinal()];
         }
 
-        RecyclerView.ViewHolder getSummaryVH() {
-            return mSummaryVH;
+        ExpansionPanelLayout getPanel() {
+            return mPanel;
         }
 
-        RecyclerView.ViewHolder getDetailsVH() {
-            return mDetailsVH;
+        void setBound(int position, PanelModel panel, boolean expanded) {
+            mBoundPosition = position;
+            mBoundPanel = panel;
+            mBoundExpanded = expanded;
         }
 
-        RecyclerView.ViewHolder getActionsVH() {
-            return mActionsVH;
+        boolean isBoundTo(int position, PanelModel panel) {
+            return mBoundPosition == position && mBoundPanel == panel;
         }
 
-        CardView getCardView() {
-            return mCardView;
+        boolean isBoundExpanded() {
+            return mBoundExpanded;
         }
 
-        ImageView getExpandIcon() {
-            return mExpandIcon;
+        void setContentDeferred(boolean deferred) {
+            mContentDeferred = deferred;
         }
 
-        ViewGroup getDetailsContainer() {
-            return mDetailsContainer;
+        boolean isContentDeferred() {
+            return mContentDeferred;
         }
 
-        ViewGroup getActionsContainer() {
-            return mActionsContainer;
+        int getMarginPreset() {
+            return mMarginPreset;
         }
 
-        View getDivider() {
-            return mDivider;
+        void setMarginPreset(int preset) {
+            mMarginPreset = preset;
         }
     }
 }
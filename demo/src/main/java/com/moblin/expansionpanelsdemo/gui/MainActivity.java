@@ -5,12 +5,24 @@ import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
+import android.widget.EditText;
 
 import com.moblin.expansionpanelsdemo.R;
+import com.moblin.expansionpanelsdemo.data.SelectionStorage;
 import com.moblin.expansionpanelsdemo.util.Assert;
 
+import java.io.File;
+
 public class MainActivity extends AppCompatActivity {
+    private static final int PREINFLATED_PANELS = 8;
+    private static final int PREINFLATED_CONTENT = 1;
+    private static final String SELECTIONS_FILE = "trip_selections";
+
+    private SelectionStorage mSelectionStorage;
+    private TripOptionsAdapter mAdapter;
 
     /** Activity methods */
 
@@ -18,17 +30,58 @@ public class MainActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
-        setupGui();
+        mSelectionStorage = new SelectionStorage(new File(getFilesDir(), SELECTIONS_FILE));
+        setupGui(savedInstanceState);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        mAdapter.onSaveInstanceState(outState);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // The process may be killed in the background.
+        mSelectionStorage.flush();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        mAdapter.onTrimMemory(level);
     }
 
     /** Private methods */
 
-    private void setupGui() {
+    private void setupGui(Bundle savedInstanceState) {
         RecyclerView rv = lookup(R.id.rv_expandable_panels);
         Assert.notNull(rv, "View not found: rv_expandable_panels");
         rv.setNestedScrollingEnabled(false);
         rv.setLayoutManager(new LinearLayoutManager(this));
-        rv.setAdapter(new TripOptionsAdapter(getResources(), rv));
+        mAdapter = new TripOptionsAdapter(getResources(), mSelectionStorage,
+                savedInstanceState);
+        mAdapter.preinflate(rv, PREINFLATED_PANELS, PREINFLATED_CONTENT);
+        rv.setAdapter(mAdapter);
+
+        EditText filter = lookup(R.id.et_filter);
+        Assert.notNull(filter, "View not found: et_filter");
+        // Also called when the text is restored after a configuration change.
+        filter.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                mAdapter.setFilter(s.toString());
+            }
+        });
     }
 
     private <T extends View> T lookup(@IdRes int viewId) {
@@ -0,0 +1,229 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import com.moblin.expansionpanelsdemo.util.AppExecutors;
+import com.moblin.expansionpanelsdemo.util.LongIntMap;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * List of panel models, that loads pages from a PanelDataSource on demand.
+ * Accessing a position loads the pages within the prefetch distance around
+ * it; pages far from the accessed position are evicted, so at most a fixed
+ * number of pages is held in memory. The positions of the loaded panels are
+ * indexed by their IDs. Should be used on the main thread only.
+ */
+class PagedPanelList {
+    /**
+     * Receives the loading results on the main thread.
+     */
+    interface Callback {
+        void onCountLoaded(int count);
+        void onRangeLoaded(int start, int count);
+    }
+
+    private final PanelDataSource mSource;
+    private final int mPageSize, mPrefetchDistance, mMaxPages;
+    private final Callback mCallback;
+    private final Executor mBackground, mMainThread;
+    private final SparseArray<List<? extends PanelModel>> mPages =
+            new SparseArray<List<? extends PanelModel>>();
+    private final SparseBooleanArray mLoadingPages = new SparseBooleanArray();
+    private final LongIntMap mPositions = new LongIntMap();
+    private int mCount;
+    private int mLastAccessedPage;
+    private boolean mClosed;
+
+    /**
+     * Package-private constructor
+     * @param source - source of panels
+     * @param pageSize - number of panels per page
+     * @param prefetchDistance - number of panels to load ahead of and behind
+     *                         the accessed position
+     * @param maxPages - maximal number of pages held in memory
+     * @param callback - callback for the loading results
+     */
+    PagedPanelList(PanelDataSource source, int pageSize, int prefetchDistance,
+                   int maxPages, Callback callback) {
+        this(source, pageSize, prefetchDistance, maxPages, callback,
+                AppExecutors.background(), AppExecutors.mainThread());
+    }
+
+    /**
+     * Package-private constructor
+     * @param source - source of panels
+     * @param pageSize - number of panels per page
+     * @param prefetchDistance - number of panels to load ahead of and behind
+     *                         the accessed position
+     * @param maxPages - maximal number of pages held in memory
+     * @param callback - callback for the loading results
+     * @param background - runs the loads
+     * @param mainThread - delivers the loading results
+     */
+    PagedPanelList(PanelDataSource source, int pageSize, int prefetchDistance,
+                   int maxPages, Callback callback, Executor background, Executor mainThread) {
+        mSource = source;
+        mPageSize = pageSize;
+        mPrefetchDistance = prefetchDistance;
+        // The prefetch window must fit, or its pages would evict each other.
+        mMaxPages = Math.max(maxPages, 2 * (prefetchDistance / pageSize + 1) + 1);
+        mCallback = callback;
+        mBackground = background;
+        mMainThread = mainThread;
+    }
+
+    /**
+     * Starts loading the number of panels.
+     */
+    void start() {
+        mBackground.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int count = mSource.getCount();
+                mMainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!mClosed) {
+                            mCount = count;
+                            mCallback.onCountLoaded(count);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stops delivering results. Loads in progress are discarded.
+     */
+    void close() {
+        mClosed = true;
+        mPages.clear();
+        mPositions.clear();
+    }
+
+    /**
+     * Returns the number of panels, 0 until the count is loaded.
+     * @return number of panels
+     */
+    int size() {
+        return mCount;
+    }
+
+    /**
+     * Returns the panel at the given position and loads the pages around it.
+     * @param position - panel position
+     * @return panel model, or null if it isn't loaded yet
+     */
+    PanelModel get(int position) {
+        loadAround(position);
+        return peek(position);
+    }
+
+    /**
+     * Returns the panel at the given position without loading anything.
+     * @param position - panel position
+     * @return panel model, or null if it isn't loaded
+     */
+    PanelModel peek(int position) {
+        List<? extends PanelModel> page = mPages.get(position / mPageSize);
+        int index = position % mPageSize;
+        return (page == null || index >= page.size()) ? null : page.get(index);
+    }
+
+    /**
+     * Returns the ID of the panel at the given position, loaded or not.
+     * @param position - panel position
+     * @return panel ID
+     */
+    long getPanelId(int position) {
+        return mSource.getPanelId(position);
+    }
+
+    /**
+     * Returns the position of a loaded panel.
+     * @param id - panel ID
+     * @param defaultValue - value to return if the panel isn't loaded
+     * @return panel position, or the default value
+     */
+    int positionOf(long id, int defaultValue) {
+        return mPositions.get(id, defaultValue);
+    }
+
+    /** Private methods */
+
+    private void loadAround(int position) {
+        mLastAccessedPage = position / mPageSize;
+        int firstPage = Math.max(0, position - mPrefetchDistance) / mPageSize;
+        int lastPage = Math.min(mCount - 1, position + mPrefetchDistance) / mPageSize;
+        for (int page = firstPage; page <= lastPage; page++) {
+            if (mPages.get(page) == null && !mLoadingPages.get(page)) {
+                loadPage(page);
+            }
+        }
+    }
+
+    private void loadPage(final int page) {
+        mLoadingPages.put(page, true);
+        final int start = page * mPageSize;
+        final int count = Math.min(mPageSize, mCount - start);
+        mBackground.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<? extends PanelModel> panels = mSource.loadRange(start, count);
+                mMainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mClosed) {
+                            return;
+                        }
+                        mLoadingPages.delete(page);
+                        checkPage(start, count, panels);
+                        mPages.put(page, panels);
+                        for (int i = 0; i < panels.size(); i++) {
+                            mPositions.put(panels.get(i).getPanelId(), start + i);
+                        }
+                        evictFarPages();
+                        mCallback.onRangeLoaded(start, panels.size());
+                    }
+                });
+            }
+        });
+    }
+
+    private void evictFarPages() {
+        while (mPages.size() > mMaxPages) {
+            int farthest = 0;
+            for (int i = 1; i < mPages.size(); i++) {
+                if (Math.abs(mPages.keyAt(i) - mLastAccessedPage)
+                        > Math.abs(mPages.keyAt(farthest) - mLastAccessedPage)) {
+                    farthest = i;
+                }
+            }
+            List<? extends PanelModel> panels = mPages.valueAt(farthest);
+            for (int i = 0; i < panels.size(); i++) {
+                mPositions.remove(panels.get(i).getPanelId());
+            }
+            mPages.removeAt(farthest);
+        }
+    }
+
+    private void checkPage(int start, int count, List<? extends PanelModel> panels) {
+        // The panels are keyed by the IDs the source reported before they
+        // were loaded; a mismatch would attach the state of one to another.
+        if (panels.size() != count) {
+            throw new IllegalStateException("Loaded " + panels.size() + " panels at " + start
+                    + ", expected " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            long id = panels.get(i).getPanelId();
+            if (id != mSource.getPanelId(start + i)) {
+                throw new IllegalStateException("Panel ID " + id + " at " + (start + i)
+                        + " differs from the source's " + mSource.getPanelId(start + i));
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import java.util.List;
+
+/**
+ * Source of panel models for catalogs too large to be held in memory.
+ * ExpansionPanelsAdapter loads it page by page on a background thread,
+ * but it keys the panels by their IDs before they are loaded, so the IDs
+ * must be known without loading the panels.
+ */
+public interface PanelDataSource {
+    /**
+     * Returns the total number of panels. Called on a background thread.
+     * @return number of panels
+     */
+    int getCount();
+
+    /**
+     * Returns the ID of the panel at the given position without loading it,
+     * e.g. the position itself or a key held in memory. Called on the main
+     * thread.
+     * @param position - panel position
+     * @return panel ID
+     */
+    long getPanelId(int position);
+
+    /**
+     * Loads a range of panels. Called on a background thread.
+     * @param start - position of the first panel
+     * @param count - number of panels to load
+     * @return loaded panel models in order, with the IDs getPanelId returns
+     */
+    List<? extends PanelModel> loadRange(int start, int count);
+}
@@ -0,0 +1,59 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import com.moblin.expansionpanelsdemo.gui.ExpansionPanelsAdapter.ViewHolderType;
+
+/**
+ * Receives timings and counters of ExpansionPanelsAdapter's hot paths, see
+ * ExpansionPanelsAdapter.setMetricsListener(). Called on the main thread,
+ * in the middle of layout and animation, so implementations should only
+ * record the values and report them later.
+ */
+public interface PanelMetricsListener {
+    /**
+     * Kinds of change notifications of the adapter.
+     */
+    enum NotifyType {
+        DATA_SET_CHANGED, RANGE_CHANGED, RANGE_INSERTED, RANGE_REMOVED, RANGE_MOVED
+    }
+
+    /**
+     * Called after a panel (the master view-holder) was created.
+     * @param durationNs - creation time
+     */
+    void onPanelCreated(long durationNs);
+
+    /**
+     * Called after the subclass created a content view-holder.
+     * @param holderType - view-holder type
+     * @param durationNs - creation time
+     */
+    void onContentCreated(ViewHolderType holderType, long durationNs);
+
+    /**
+     * Called after the subclass bound a content view-holder.
+     * @param holderType - view-holder type
+     * @param durationNs - bind time
+     */
+    void onContentBound(ViewHolderType holderType, long durationNs);
+
+    /**
+     * Called when a panel's height animation ended.
+     * @param expanded - true if the panel was expanded, false if collapsed
+     * @param durationNs - time from the start to the end of the animation
+     */
+    void onExpansionAnimated(boolean expanded, long durationNs);
+
+    /**
+     * Called when a panel finished expanding: its expansion animation ended.
+     * @param panelId - ID of the panel
+     * @param latencyNs - time from the expansion request to the end of the animation
+     */
+    void onExpandLatency(long panelId, long latencyNs);
+
+    /**
+     * Called when the adapter notified a change.
+     * @param type - kind of notification
+     * @param itemCount - number of affected panels, or -1 for DATA_SET_CHANGED
+     */
+    void onNotify(NotifyType type, int itemCount);
+}
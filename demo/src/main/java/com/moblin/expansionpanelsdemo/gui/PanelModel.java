@@ -0,0 +1,22 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+/**
+ * Immutable data of a single expansion panel, submitted to
+ * ExpansionPanelsAdapter in lists. A changed panel is represented by a new
+ * model object with the same ID.
+ */
+public interface PanelModel {
+    /**
+     * Returns the stable ID of the panel.
+     * @return panel ID
+     */
+    long getPanelId();
+
+    /**
+     * Checks whether the other model of the same panel displays the same data.
+     * Called on a background thread.
+     * @param other - model with the same ID
+     * @return true if the panel doesn't need to be rebound
+     */
+    boolean hasSameContent(PanelModel other);
+}
@@ -1,7 +1,11 @@
 package com.moblin.expansionpanelsdemo.gui;
 
+import android.content.ComponentCallbacks2;
 import android.content.res.Resources;
+import android.os.Bundle;
+import android.text.TextUtils;
 import android.support.annotation.IdRes;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -11,31 +15,149 @@ import android.widget.RadioButton;
 import android.widget.RadioGroup;
 import android.widget.TextView;
 
+import com.moblin.binder.BindLayout;
+import com.moblin.binder.BindView;
 import com.moblin.expansionpanelsdemo.R;
-import com.moblin.expansionpanelsdemo.util.Assert;
+import com.moblin.expansionpanelsdemo.data.ArrayOptionCatalog;
+import com.moblin.expansionpanelsdemo.data.MappedOptionCatalog;
+import com.moblin.expansionpanelsdemo.data.OptionCatalog;
+import com.moblin.expansionpanelsdemo.data.OptionIndex;
+import com.moblin.expansionpanelsdemo.data.SelectionStorage;
+import com.moblin.expansionpanelsdemo.data.SelectionStore;
+import com.moblin.expansionpanelsdemo.util.AppExecutors;
+import com.moblin.expansionpanelsdemo.util.LongHashSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 @SuppressWarnings("WeakerAccess")
 public class TripOptionsAdapter extends ExpansionPanelsAdapter {
-    private static final int POS_TRIP_NAME = 0;
-    private static final int POS_LOCATION = 1;
-    private static final int POS_DURATION = 2;
-    private static final int POS_CARRIER = 3;
-    private static final int POS_MEAL_PREF = 4;
-    private static final int SETTINGS_COUNT = 5;
-
-    private String[] mSettingsNames, mTripNameOptions, mLocationOptions,
-            mDurationOptions, mCarrierOptions, mMealOptions;
-    private String[] mSelectedOptions = new String[SETTINGS_COUNT];
-    private int[] mCheckedIds = new int[SETTINGS_COUNT];
-
-    public TripOptionsAdapter(Resources res, ViewGroup sceneRoot) {
-        super(res, sceneRoot);
-        mSettingsNames = res.getStringArray(R.array.settings);
-        mTripNameOptions = res.getStringArray(R.array.trip_name_options);
-        mLocationOptions = res.getStringArray(R.array.location_options);
-        mDurationOptions = res.getStringArray(R.array.duration_options);
-        mCarrierOptions = res.getStringArray(R.array.carrier_options);
-        mMealOptions = res.getStringArray(R.array.meal_options);
+    private static final int NOT_CHECKED = SelectionStore.NOT_SELECTED;
+    private static final String KEY_SELECTIONS = "TripOptionsAdapter.selections";
+    static final String CATALOG_ASSET = "trip_options.catalog";
+    // About a screen of panels, shown before the rest of the catalog is indexed.
+    private static final int FIRST_PAGE_SIZE = 20;
+    // Settings with more options show them in a nested list of bounded height.
+    private static final int LONG_LIST_THRESHOLD = 12;
+    private static final int VIEW_TYPE_SHORT_LIST = 0;
+    private static final int VIEW_TYPE_LONG_LIST = 1;
+    private static final int VISIBLE_OPTION_ROWS = 6;
+    private static final int MAX_POOLED_OPTION_ROWS = 16;
+
+    private OptionCatalog mCatalog = new ArrayOptionCatalog(new String[0], new String[0][]);
+    // Model of each setting, kept while its content stays the same, so
+    // republished panels keep their identity and aren't rebound.
+    private SettingPanel[] mModels = new SettingPanel[0];
+    private boolean mCatalogLoaded;
+    // Selections of the saved state, restored once the catalog is loaded.
+    private byte[] mSavedSelections;
+    private String mNotSet;
+    private SelectionStorage mStorage;
+    private SelectionStore mSelections;
+    // Shared by the nested option lists, so they reuse each other's rows.
+    private RecyclerView.RecycledViewPool mOptionRowPool = new RecyclerView.RecycledViewPool();
+    private boolean mSelectionsLoaded, mSelectionsChanged;
+    private OptionIndex mIndex;
+    private String mFilter = "";
+    private OptionIndex.Result mFilterResult;
+    private int mFilterGeneration;
+    private LongHashSet mAutoExpandedIds = new LongHashSet();
+
+    /**
+     * Public constructor, loads the catalog from the app's assets. Panels
+     * are published as the catalog is loaded.
+     * @param res - app resources
+     * @param storage - storage of the committed selections
+     * @param savedState - state saved by onSaveInstanceState(), or null
+     */
+    public TripOptionsAdapter(Resources res, SelectionStorage storage, Bundle savedState) {
+        this(res, null, storage, savedState);
+    }
+
+    /**
+     * Public constructor
+     * @param res - app resources
+     * @param catalog - loaded catalog, or null to load it from the app's assets
+     * @param storage - storage of the committed selections
+     * @param savedState - state saved by onSaveInstanceState(), or null
+     */
+    public TripOptionsAdapter(Resources res, OptionCatalog catalog, SelectionStorage storage,
+                              Bundle savedState) {
+        super(res);
+        setHasStableIds(true);
+        mStorage = storage;
+        mNotSet = res.getString(R.string.not_set);
+        mOptionRowPool.setMaxRecycledViews(0, MAX_POOLED_OPTION_ROWS);
+        mSelections = new SelectionStore(new SelectionStore.Validator() {
+            @Override
+            public boolean isValid(long panelId, int option) {
+                return panelId >= 0 && panelId < mCatalog.getSettingCount()
+                        && option < mCatalog.getOptionCount((int) panelId);
+            }
+        });
+        mSelections.setListener(new SelectionStore.Listener() {
+            @Override
+            public void onSelectionsCommitted(long[] panelIds) {
+                // Only the panels with the given IDs get new models, so only
+                // their summaries get rebound.
+                for (long panelId : panelIds) {
+                    if (panelId < mModels.length) {
+                        mModels[(int) panelId] = null;
+                    }
+                }
+                publishPanels();
+                saveSelections();
+            }
+        });
+
+        mSavedSelections = (savedState == null) ?
+                null : savedState.getByteArray(KEY_SELECTIONS);
+        onRestoreInstanceState(savedState);
+        if (catalog != null) {
+            setCatalog(catalog, true);
+            return;
+        }
+        MappedOptionCatalog.loadAsset(res.getAssets(), CATALOG_ASSET, FIRST_PAGE_SIZE,
+                new MappedOptionCatalog.LoadCallback() {
+                    @Override
+                    public void onCatalogLoaded(OptionCatalog catalog, boolean complete) {
+                        setCatalog(catalog, complete);
+                    }
+                });
+    }
+
+    /**
+     * Shows only the settings whose name or options contain words starting
+     * with the words of the query, and expands the ones with a matching
+     * option. The query is matched on a background thread; the result is
+     * published as minimal list updates.
+     * @param query - words to look for, blank to show all settings
+     */
+    public void setFilter(String query) {
+        mFilter = query;
+        final String filter = query;
+        final int generation = ++mFilterGeneration;
+        if (mIndex == null) {
+            // Applied once the index is built.
+            return;
+        }
+        final OptionIndex index = mIndex;
+        final OptionIndex.Result previous = mFilterResult;
+        AppExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                final OptionIndex.Result result = index.search(filter, previous);
+                AppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mFilterGeneration) {
+                            applyFilterResult(result);
+                        }
+                    }
+                });
+            }
+        });
     }
 
     @Override
@@ -48,15 +170,20 @@ public class TripOptionsAdapter extends ExpansionPanelsAdapter {
             case SUMMARY:
                 view = LayoutInflater.from(parent.getContext()).inflate(
                         R.layout.simple_summary, parent, false);
-                return new SummaryViewHolder(view, masterViewHolder);
+                return new SummaryViewHolder(view);
             case DETAILS:
+                if (viewType == VIEW_TYPE_LONG_LIST) {
+                    view = LayoutInflater.from(parent.getContext()).inflate(
+                            R.layout.long_details, parent, false);
+                    return new LongDetailsViewHolder(view);
+                }
                 view = LayoutInflater.from(parent.getContext()).inflate(
                         R.layout.simple_details, parent, false);
-                return new DetailsViewHolder(view, masterViewHolder);
+                return new DetailsViewHolder(view);
             case ACTIONS:
                 view = LayoutInflater.from(parent.getContext()).inflate(
                         R.layout.simple_actions, parent, false);
-                return new ActionsViewHolder(view, masterViewHolder);
+                return new ActionsViewHolder(view);
             default:
                 return null;
         }
@@ -67,69 +194,210 @@ public class TripOptionsAdapter extends ExpansionPanelsAdapter {
                                     int position, ViewHolderType holderType) {
         if (holder instanceof SummaryViewHolder) {
             SummaryViewHolder svh = (SummaryViewHolder) holder;
-            svh.getSetting().setText(mSettingsNames[position]);
-            svh.getValue().setText((mSelectedOptions[position] == null) ?
-                    mResources.getString(R.string.not_set) :
-                    mSelectedOptions[position]);
-        } else if (holder instanceof DetailsViewHolder) {
-            DetailsViewHolder dvh = (DetailsViewHolder) holder;
-            switch (position) {
-                case POS_TRIP_NAME:
-                    dvh.getOptionA().setText(mTripNameOptions[0]);
-                    dvh.getOptionB().setText(mTripNameOptions[1]);
-                    dvh.getOptionC().setText(mTripNameOptions[2]);
-                    break;
-                case POS_LOCATION:
-                    dvh.getOptionA().setText(mLocationOptions[0]);
-                    dvh.getOptionB().setText(mLocationOptions[1]);
-                    dvh.getOptionC().setText(mLocationOptions[2]);
-                    break;
-                case POS_DURATION:
-                    dvh.getOptionA().setText(mDurationOptions[0]);
-                    dvh.getOptionB().setText(mDurationOptions[1]);
-                    dvh.getOptionC().setText(mDurationOptions[2]);
-                    break;
-                case POS_CARRIER:
-                    dvh.getOptionA().setText(mCarrierOptions[0]);
-                    dvh.getOptionB().setText(mCarrierOptions[1]);
-                    dvh.getOptionC().setText(mCarrierOptions[2]);
-                    break;
-                case POS_MEAL_PREF:
-                    dvh.getOptionA().setText(mMealOptions[0]);
-                    dvh.getOptionB().setText(mMealOptions[1]);
-                    dvh.getOptionC().setText(mMealOptions[2]);
-                    break;
+            SettingPanel panel = getPanel(position);
+            if (panel == null) {
+                // Placeholder for a panel that is still loading.
+                svh.getSetting().setText(R.string.loading);
+                svh.getValue().setText(null);
+                return;
             }
+            setTextIfChanged(svh.getSetting(), panel.getName());
+            setTextIfChanged(svh.getValue(),
+                    (panel.getValue() == null) ? mNotSet : panel.getValue());
+        } else if (holder instanceof DetailsViewHolder) {
+            int setting = getSetting(position);
+            ((DetailsViewHolder) holder).bind(setting, mSelections.getDraft(setting));
+        } else if (holder instanceof LongDetailsViewHolder) {
+            int setting = getSetting(position);
+            ((LongDetailsViewHolder) holder).bind(setting, mSelections.getDraft(setting));
         }
     }
 
     @Override
-    public int getItemCount() {
-        return mSettingsNames.length;
+    protected int getContentViewType(int position, ViewHolderType holderType) {
+        if (holderType == ViewHolderType.DETAILS
+                && mCatalog.getOptionCount(getSetting(position)) > LONG_LIST_THRESHOLD) {
+            return VIEW_TYPE_LONG_LIST;
+        }
+        return VIEW_TYPE_SHORT_LIST;
+    }
+
+    @Override
+    protected void onBindViewHolder(RecyclerView.ViewHolder holder, int position,
+                                    ViewHolderType holderType, List<Object> payloads) {
+        // The texts don't depend on the expansion state.
+        if (!containsOnly(payloads, Payload.EXPAND_STATE)) {
+            onBindViewHolder(holder, position, holderType);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            mOptionRowPool.clear();
+        }
+    }
+
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        // Drafts included, so options checked but not saved yet survive.
+        outState.putByteArray(KEY_SELECTIONS,
+                mCatalogLoaded ? mSelections.encode() : mSavedSelections);
     }
 
     /** Private methods */
 
-    private static <T extends View> T lookup(View rootView, @IdRes int viewId) {
-        //noinspection unchecked
-        return (T) rootView.findViewById(viewId);
+    private void setCatalog(OptionCatalog catalog, boolean complete) {
+        if (!complete) {
+            // A restored adapter waits for the whole catalog, so its
+            // expansion state and selections apply to all panels at once.
+            if (mSavedSelections == null) {
+                mCatalog = catalog;
+                mModels = new SettingPanel[catalog.getSettingCount()];
+                publishPanels();
+            }
+            return;
+        }
+        mCatalog = catalog;
+        // The catalog starts with the settings of the first page, so their
+        // published models are kept, and the panels aren't rebound.
+        mModels = Arrays.copyOf(mModels, catalog.getSettingCount());
+        mCatalogLoaded = true;
+
+        // The saved state is newer than the storage, which is read only on a cold start.
+        if (mSavedSelections != null && mSelections.restore(mSavedSelections)) {
+            mSelectionsLoaded = true;
+        } else {
+            loadSelections();
+        }
+        mSavedSelections = null;
+        publishPanels();
+        buildIndex();
     }
 
-    private class SummaryViewHolder extends RecyclerView.ViewHolder {
-        private ViewHolder mMasterViewHolder;
-        private TextView mSetting;
-        private TextView mValue;
+    private void buildIndex() {
+        final OptionCatalog catalog = mCatalog;
+        AppExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                final OptionIndex index = new OptionIndex(catalog);
+                AppExecutors.mainThread().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        mIndex = index;
+                        if (!mFilter.trim().isEmpty()) {
+                            setFilter(mFilter);
+                        }
+                    }
+                });
+            }
+        });
+    }
 
-        SummaryViewHolder(View itemView, ViewHolder masterViewHolder) {
-            super(itemView);
+    private void applyFilterResult(OptionIndex.Result result) {
+        mFilterResult = result;
+
+        // Expand the settings the user is looking for an option of.
+        boolean single = getExpansionMode() == ExpansionMode.SINGLE;
+        boolean blank = mFilter.trim().isEmpty();
+        LongHashSet expandIds = new LongHashSet();
+        int setting = blank ? -1 : result.nextOptionMatch(0);
+        while (setting >= 0) {
+            expandIds.add(setting);
+            setting = single ? -1 : result.nextOptionMatch(setting + 1);
+        }
+        for (long id : mAutoExpandedIds.toArray()) {
+            if (!expandIds.contains(id)) {
+                setExpandedById(id, false);
+            }
+        }
+        for (long id : expandIds.toArray()) {
+            setExpandedById(id, true);
+        }
+        mAutoExpandedIds = expandIds;
+        publishPanels();
+    }
+
+    private void publishPanels() {
+        if (mFilterResult == null) {
+            List<SettingPanel> panels = new ArrayList<SettingPanel>(mCatalog.getSettingCount());
+            for (int i = 0; i < mCatalog.getSettingCount(); i++) {
+                panels.add(getModel(i));
+            }
+            submitPanels(panels);
+            return;
+        }
+        // Only the matching settings are visited.
+        List<SettingPanel> panels = new ArrayList<SettingPanel>(mFilterResult.getMatchCount());
+        for (int i = mFilterResult.nextMatch(0); i >= 0; i = mFilterResult.nextMatch(i + 1)) {
+            panels.add(getModel(i));
+        }
+        submitPanels(panels);
+    }
+
+    private SettingPanel getModel(int setting) {
+        if (mModels[setting] == null) {
+            mModels[setting] = createPanel(setting, mSelections.getCommitted(setting));
+        }
+        return mModels[setting];
+    }
 
-            mMasterViewHolder = masterViewHolder;
+    private void loadSelections() {
+        mStorage.load(new SelectionStorage.LoadCallback() {
+            @Override
+            public void onSelectionsLoaded(long[] panelIds, int[] options) {
+                mSelectionsLoaded = true;
+                // Selections committed since the start are newer than the
+                // loaded ones. The merged ones are published as a commit.
+                mSelections.mergeCommitted(panelIds, options);
+                if (mSelectionsChanged) {
+                    saveSelections();
+                }
+            }
+        });
+    }
 
-            mSetting = lookup(itemView, R.id.tv_setting);
-            Assert.notNull(mSetting, "View not found: tv_setting");
+    private void saveSelections() {
+        mSelectionsChanged = true;
+        if (!mSelectionsLoaded) {
+            // Saved once the stored selections are merged in.
+            return;
+        }
+        long[] panelIds = mSelections.getCommittedIds();
+        int[] options = new int[panelIds.length];
+        for (int i = 0; i < panelIds.length; i++) {
+            options[i] = mSelections.getCommitted(panelIds[i]);
+        }
+        mStorage.save(panelIds, options);
+    }
 
-            mValue = lookup(itemView, R.id.tv_value);
-            Assert.notNull(mValue, "View not found: tv_value");
+    private SettingPanel createPanel(int setting, int option) {
+        return new SettingPanel(setting, mCatalog.getSettingName(setting), option,
+                (option == NOT_CHECKED) ? null : mCatalog.getOption(setting, option));
+    }
+
+    private static void setTextIfChanged(TextView view, String text) {
+        // setText() lays the view out again even for the same text.
+        if (!TextUtils.equals(view.getText(), text)) {
+            view.setText(text);
+        }
+    }
+
+    private int getSetting(int position) {
+        // Panel IDs are the indices of the settings.
+        return (int) getItemId(position);
+    }
+
+    @BindLayout("simple_summary")
+    class SummaryViewHolder extends RecyclerView.ViewHolder {
+        @BindView("tv_setting") TextView mSetting;
+        @BindView("tv_value") TextView mValue;
+
+        SummaryViewHolder(View itemView) {
+            super(itemView);
+            TripOptionsAdapter_SummaryViewHolder_Binder.bind(this, itemView);
         }
 
         public TextView getSetting() {
@@ -141,108 +409,261 @@ public class TripOptionsAdapter extends ExpansionPanelsAdapter {
         }
     }
 
-    private class DetailsViewHolder extends RecyclerView.ViewHolder {
-        private ViewHolder mMasterViewHolder;
-        private RadioButton mOptionA, mOptionB, mOptionC;
+    @BindLayout("simple_details")
+    class DetailsViewHolder extends RecyclerView.ViewHolder {
+        @BindView("rg_options") RadioGroup mOptions;
+        // Rows are kept across rebinds, the ones beyond the option count are hidden.
+        private List<RadioButton> mRows = new ArrayList<RadioButton>();
+        private int mRowCount;
+        private boolean mBinding;
 
-        DetailsViewHolder(View itemView, ViewHolder masterViewHolder) {
+        DetailsViewHolder(View itemView) {
             super(itemView);
-
-            mMasterViewHolder = masterViewHolder;
-
-            RadioGroup rg = lookup(itemView, R.id.rg_options);
-            Assert.notNull(rg, "View not found: rg_options");
-            rg.setOnCheckedChangeListener(new RadioGroup.OnCheckedChangeListener() {
+            TripOptionsAdapter_DetailsViewHolder_Binder.bind(this, itemView);
+            mOptions.setOnCheckedChangeListener(new RadioGroup.OnCheckedChangeListener() {
                 @Override
                 public void onCheckedChanged(RadioGroup group, @IdRes int checkedId) {
-                    int pos = mMasterViewHolder.getAdapterPosition();
-                    switch (checkedId) {
-                        case R.id.rb_option_a:
-                            mCheckedIds[pos] = 0;
-                            break;
-                        case R.id.rb_option_b:
-                            mCheckedIds[pos] = 1;
-                            break;
-                        case R.id.rb_option_c:
-                            mCheckedIds[pos] = 2;
-                            break;
+                    int pos = getPanelPosition(DetailsViewHolder.this);
+                    if (mBinding || pos == RecyclerView.NO_POSITION) {
+                        return;
                     }
+                    mSelections.setDraft(getSetting(pos), indexOfRow(checkedId));
                 }
             });
+        }
+
+        /**
+         * Shows the options of a setting, adding rows only if the setting
+         * has more options than any setting bound before.
+         * @param setting - setting index
+         * @param checked - index of the checked option, or NOT_CHECKED
+         */
+        void bind(int setting, int checked) {
+            mBinding = true;
+            int count = mCatalog.getOptionCount(setting);
+            while (mRows.size() < count) {
+                RadioButton row = (RadioButton) LayoutInflater.from(itemView.getContext())
+                        .inflate(R.layout.option_row, mOptions, false);
+                // RadioGroup assigns an ID to the row when it's added.
+                mOptions.addView(row);
+                mRows.add(row);
+            }
+            for (int i = 0; i < count; i++) {
+                setTextIfChanged(mRows.get(i), mCatalog.getOption(setting, i));
+            }
+            for (int i = count; i < mRowCount; i++) {
+                mRows.get(i).setVisibility(View.GONE);
+            }
+            for (int i = mRowCount; i < count; i++) {
+                mRows.get(i).setVisibility(View.VISIBLE);
+            }
+            mRowCount = count;
+
+            if (checked == NOT_CHECKED) {
+                mOptions.clearCheck();
+            } else {
+                mOptions.check(mRows.get(checked).getId());
+            }
+            mBinding = false;
+        }
+
+        private int indexOfRow(@IdRes int rowId) {
+            for (int i = 0; i < mRowCount; i++) {
+                if (mRows.get(i).getId() == rowId) {
+                    return i;
+                }
+            }
+            return NOT_CHECKED;
+        }
+    }
+
+    @BindLayout("long_details")
+    class LongDetailsViewHolder extends RecyclerView.ViewHolder {
+        @BindView("rv_options") RecyclerView mOptions;
+        private OptionsAdapter mAdapter = new OptionsAdapter(this);
+
+        LongDetailsViewHolder(View itemView) {
+            super(itemView);
+            TripOptionsAdapter_LongDetailsViewHolder_Binder.bind(this, itemView);
+
+            LinearLayoutManager layoutManager = new LinearLayoutManager(itemView.getContext());
+            // Rows go back to the shared pool when the details are detached.
+            layoutManager.setRecycleChildrenOnDetach(true);
+            // When the outer list prefetches the panel, it prefetches the
+            // rows that fit the bounded height too.
+            layoutManager.setInitialPrefetchItemCount(VISIBLE_OPTION_ROWS);
+            mOptions.setLayoutManager(layoutManager);
+            mOptions.setRecycledViewPool(mOptionRowPool);
+            mOptions.setHasFixedSize(true);
+            // Checking a row rebinds it in place.
+            mOptions.setItemAnimator(null);
+            mOptions.setAdapter(mAdapter);
+        }
+
+        /**
+         * Shows the options of a setting. Only the rows that fit the
+         * bounded height are created and bound.
+         * @param setting - setting index
+         * @param checked - index of the checked option, or NOT_CHECKED
+         */
+        void bind(int setting, int checked) {
+            boolean sameSetting = mAdapter.getSetting() == setting;
+            mAdapter.bind(setting, checked);
+            if (!sameSetting) {
+                mOptions.scrollToPosition(Math.max(checked, 0));
+            }
+        }
+    }
+
+    /**
+     * Single-choice list of the options of a setting.
+     */
+    class OptionsAdapter extends RecyclerView.Adapter<OptionRowHolder> {
+        private final RecyclerView.ViewHolder mDetails;
+        private int mSetting = NOT_CHECKED;
+        private int mChecked = NOT_CHECKED;
+
+        OptionsAdapter(RecyclerView.ViewHolder details) {
+            mDetails = details;
+        }
+
+        int getSetting() {
+            return mSetting;
+        }
 
-            mOptionA = lookup(itemView, R.id.rb_option_a);
-            Assert.notNull(mOptionA, "View not found: rb_option_a");
+        void bind(int setting, int checked) {
+            if (setting != mSetting) {
+                mSetting = setting;
+                mChecked = checked;
+                notifyDataSetChanged();
+            } else if (checked != mChecked) {
+                setChecked(checked);
+            }
+        }
 
-            mOptionB = lookup(itemView, R.id.rb_option_b);
-            Assert.notNull(mOptionB, "View not found: rb_option_b");
+        @Override
+        public OptionRowHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            RadioButton row = (RadioButton) LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.option_row, parent, false);
+            // The whole width is clickable, like in a RadioGroup.
+            row.getLayoutParams().width = ViewGroup.LayoutParams.MATCH_PARENT;
+            final OptionRowHolder holder = new OptionRowHolder(row);
+            row.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    int pos = getPanelPosition(mDetails);
+                    int option = holder.getAdapterPosition();
+                    if (pos == RecyclerView.NO_POSITION || option == RecyclerView.NO_POSITION) {
+                        return;
+                    }
+                    setChecked(option);
+                    mSelections.setDraft(getSetting(pos), option);
+                }
+            });
+            return holder;
+        }
 
-            mOptionC = lookup(itemView, R.id.rb_option_c);
-            Assert.notNull(mOptionC, "View not found: rb_option_c");
+        @Override
+        public void onBindViewHolder(OptionRowHolder holder, int position) {
+            setTextIfChanged(holder.mRow, mCatalog.getOption(mSetting, position));
+            holder.mRow.setChecked(position == mChecked);
         }
 
-        public RadioButton getOptionA() {
-            return mOptionA;
+        @Override
+        public int getItemCount() {
+            return (mSetting == NOT_CHECKED) ? 0 : mCatalog.getOptionCount(mSetting);
         }
 
-        public RadioButton getOptionB() {
-            return mOptionB;
+        private void setChecked(int option) {
+            if (mChecked != NOT_CHECKED) {
+                notifyItemChanged(mChecked);
+            }
+            mChecked = option;
+            if (option != NOT_CHECKED) {
+                notifyItemChanged(option);
+            }
         }
+    }
+
+    static class OptionRowHolder extends RecyclerView.ViewHolder {
+        final RadioButton mRow;
 
-        public RadioButton getOptionC() {
-            return mOptionC;
+        OptionRowHolder(RadioButton row) {
+            super(row);
+            mRow = row;
         }
     }
 
-    private class ActionsViewHolder extends RecyclerView.ViewHolder {
-        private ViewHolder mMasterViewHolder;
+    @BindLayout("simple_actions")
+    class ActionsViewHolder extends RecyclerView.ViewHolder {
+        @BindView("btn_save") Button mSave;
+        @BindView("btn_cancel") Button mCancel;
 
-        ActionsViewHolder(View itemView, ViewHolder masterViewHolder) {
+        ActionsViewHolder(View itemView) {
             super(itemView);
+            TripOptionsAdapter_ActionsViewHolder_Binder.bind(this, itemView);
 
-            mMasterViewHolder = masterViewHolder;
-
-            Button btnSave = lookup(itemView, R.id.btn_save);
-            Assert.notNull(btnSave, "View not found: btn_save");
-            btnSave.setOnClickListener(new View.OnClickListener() {
+            mSave.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    int setting = mMasterViewHolder.getAdapterPosition();
-                    int checked = mCheckedIds[setting];
-                    setSelected(setting, checked);
-                    collapseAll();
+                    int position = getPanelPosition(ActionsViewHolder.this);
+                    if (position == RecyclerView.NO_POSITION) {
+                        return;
+                    }
+                    mSelections.commit(getSetting(position));
+                    setExpanded(position, false);
                 }
             });
 
-            Button btnCancel = lookup(itemView, R.id.btn_cancel);
-            Assert.notNull(btnCancel, "View not found: btn_cancel");
-            btnCancel.setOnClickListener(new View.OnClickListener() {
+            mCancel.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    collapseAll();
+                    int position = getPanelPosition(ActionsViewHolder.this);
+                    if (position != RecyclerView.NO_POSITION) {
+                        // Rebound, so the committed option is checked again.
+                        mSelections.discardDraft(getSetting(position));
+                        notifyPanelContentChanged(position);
+                        setExpanded(position, false);
+                    }
                 }
             });
         }
     }
 
-    private void setSelected(int setting, int checked) {
-        switch (setting) {
-            case POS_TRIP_NAME:
-                mSelectedOptions[setting] = mTripNameOptions[checked];
-                break;
-            case POS_LOCATION:
-                mSelectedOptions[setting] = mLocationOptions[checked];
-                break;
-            case POS_DURATION:
-                mSelectedOptions[setting] = mDurationOptions[checked];
-                break;
-            case POS_CARRIER:
-                mSelectedOptions[setting] = mCarrierOptions[checked];
-                break;
-            case POS_MEAL_PREF:
-                mSelectedOptions[setting] = mMealOptions[checked];
-                break;
-            default:
-                break;
+    private static class SettingPanel implements PanelModel {
+        private final int mSetting;
+        private final String mName;
+        private final int mOption;
+        private final String mValue;
+
+        SettingPanel(int setting, String name, int option, String value) {
+            mSetting = setting;
+            mName = name;
+            mOption = option;
+            mValue = value;
+        }
+
+        String getName() {
+            return mName;
+        }
+
+        int getOption() {
+            return mOption;
+        }
+
+        String getValue() {
+            return mValue;
+        }
+
+        @Override
+        public long getPanelId() {
+            return mSetting;
+        }
+
+        @Override
+        public boolean hasSameContent(PanelModel other) {
+            SettingPanel panel = (SettingPanel) other;
+            return TextUtils.equals(mName, panel.mName) && TextUtils.equals(mValue, panel.mValue);
         }
     }
 }
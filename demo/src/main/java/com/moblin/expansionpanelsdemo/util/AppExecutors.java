@@ -0,0 +1,87 @@
+package com.moblin.expansionpanelsdemo.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executors of the app. Background work runs on a small pool of
+ * low-priority threads; its results are posted back with the main thread
+ * executor. File I/O runs on a single thread, so reads and writes of the
+ * same file are ordered.
+ */
+public class AppExecutors {
+    private static final int BACKGROUND_THREADS = 2;
+
+    private static ExecutorService sBackground;
+    private static ScheduledExecutorService sDiskIO;
+    private static Executor sMainThread;
+
+    /**
+     * Returns the executor for work that should not run on the main thread.
+     * @return background executor
+     */
+    public static synchronized ExecutorService background() {
+        if (sBackground == null) {
+            sBackground = Executors.newFixedThreadPool(BACKGROUND_THREADS,
+                    new BackgroundThreadFactory("background-"));
+        }
+        return sBackground;
+    }
+
+    /**
+     * Returns the single-threaded executor for file I/O.
+     * @return disk I/O executor
+     */
+    public static synchronized ScheduledExecutorService diskIO() {
+        if (sDiskIO == null) {
+            sDiskIO = Executors.newSingleThreadScheduledExecutor(
+                    new BackgroundThreadFactory("disk-io-"));
+        }
+        return sDiskIO;
+    }
+
+    /**
+     * Returns the executor that posts work to the main thread.
+     * @return main thread executor
+     */
+    public static synchronized Executor mainThread() {
+        if (sMainThread == null) {
+            final Handler handler = new Handler(Looper.getMainLooper());
+            sMainThread = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    handler.post(command);
+                }
+            };
+        }
+        return sMainThread;
+    }
+
+    private static class BackgroundThreadFactory implements ThreadFactory {
+        private final String mNamePrefix;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        BackgroundThreadFactory(String namePrefix) {
+            mNamePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, mNamePrefix + mCount.incrementAndGet());
+        }
+    }
+}
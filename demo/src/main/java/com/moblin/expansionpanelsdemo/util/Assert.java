@@ -19,6 +19,20 @@ public class Assert {
         }
     }
 
+    /**
+     * Checks that the provided expression is true. Throws an exception
+     * in debug mode. The message is built only if the check fails, so it
+     * can be used on hot paths.
+     * @param expression - tested assumption
+     * @param detailMessage - error message, followed by the value
+     * @param value - value to report
+     */
+    public static void isTrue(boolean expression, String detailMessage, long value) {
+        if (BuildConfig.DEBUG && !expression) {
+            throw new AssertionError(detailMessage + value);
+        }
+    }
+
     /**
      * Checks that the provided object reference is not NULL. Throws an exception
      * in debug mode.
@@ -0,0 +1,95 @@
+package com.moblin.expansionpanelsdemo.util;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies with power-of-two buckets: bucket i counts the
+ * values in [2^i, 2^(i+1)) microseconds, the first bucket also counts the
+ * values below a microsecond and the last one the values above its lower
+ * bound. Recording doesn't allocate. Not thread-safe.
+ */
+public class LatencyHistogram {
+    private static final int BUCKET_COUNT = 24;
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mTotalCount;
+    private long mMaxNs;
+
+    /**
+     * Records a latency.
+     * @param latencyNs - latency in nanoseconds
+     */
+    public void record(long latencyNs) {
+        long micros = Math.max(latencyNs / NANOS_PER_MICRO, 1);
+        int bucket = Math.min(63 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+        mCounts[bucket]++;
+        mTotalCount++;
+        mMaxNs = Math.max(mMaxNs, latencyNs);
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     * @return count
+     */
+    public long getCount() {
+        return mTotalCount;
+    }
+
+    /**
+     * Returns the highest recorded latency.
+     * @return latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getMaxNs() {
+        return mMaxNs;
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket that holds it.
+     * @param percentile - percentile from 0 to 100
+     * @return latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentileNs(double percentile) {
+        if (mTotalCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(mTotalCount * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                return Math.min((NANOS_PER_MICRO << (i + 1)), mMaxNs);
+            }
+        }
+        return mMaxNs;
+    }
+
+    /**
+     * Copies the bucket counts, see the class description for the bounds.
+     * @return count of every bucket
+     */
+    public long[] getBucketCounts() {
+        return mCounts.clone();
+    }
+
+    /**
+     * Copies the histogram.
+     * @return independent copy
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        System.arraycopy(mCounts, 0, copy.mCounts, 0, BUCKET_COUNT);
+        copy.mTotalCount = mTotalCount;
+        copy.mMaxNs = mMaxNs;
+        return copy;
+    }
+
+    /**
+     * Forgets all the recorded latencies.
+     */
+    public void reset() {
+        Arrays.fill(mCounts, 0);
+        mTotalCount = 0;
+        mMaxNs = 0;
+    }
+}
@@ -0,0 +1,85 @@
+package com.moblin.expansionpanelsdemo.util;
+
+/**
+ * Set of primitive longs, kept as the keys of a LongIntMap, so both share
+ * one implementation of hashing and probing. Adding, removing and querying
+ * don't allocate (except for growing the table) and take constant time on
+ * average.
+ */
+public class LongHashSet {
+    private final LongIntMap mMap;
+
+    public LongHashSet() {
+        mMap = new LongIntMap();
+    }
+
+    /**
+     * Public constructor
+     * @param expectedSize - number of keys the set can hold without growing
+     */
+    public LongHashSet(int expectedSize) {
+        mMap = new LongIntMap(expectedSize);
+    }
+
+    /**
+     * Adds a key to the set.
+     * @param key - key to add
+     * @return true if the set did not contain the key
+     */
+    public boolean add(long key) {
+        if (mMap.containsKey(key)) {
+            return false;
+        }
+        mMap.put(key, 0);
+        return true;
+    }
+
+    /**
+     * Removes a key from the set.
+     * @param key - key to remove
+     * @return true if the set contained the key
+     */
+    public boolean remove(long key) {
+        return mMap.remove(key);
+    }
+
+    /**
+     * Checks whether the set contains a key.
+     * @param key - key to look for
+     * @return true if the set contains the key
+     */
+    public boolean contains(long key) {
+        return mMap.containsKey(key);
+    }
+
+    /**
+     * Returns the number of keys in the set.
+     * @return number of keys
+     */
+    public int size() {
+        return mMap.size();
+    }
+
+    /**
+     * Checks whether the set is empty.
+     * @return true if the set has no keys
+     */
+    public boolean isEmpty() {
+        return mMap.isEmpty();
+    }
+
+    /**
+     * Removes all keys from the set.
+     */
+    public void clear() {
+        mMap.clear();
+    }
+
+    /**
+     * Copies the keys of the set into a new array, in no particular order.
+     * @return array of keys
+     */
+    public long[] toArray() {
+        return mMap.toKeyArray();
+    }
+}
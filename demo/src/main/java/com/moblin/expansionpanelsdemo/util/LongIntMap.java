@@ -0,0 +1,206 @@
+package com.moblin.expansionpanelsdemo.util;
+
+import java.util.Arrays;
+
+/**
+ * Map of primitive long keys to int values, based on open addressing with
+ * linear probing. Keys are spread over the table, so sparse IDs take no
+ * more room than dense ones. Putting, removing and querying don't allocate
+ * (except for growing the table) and take constant time on average.
+ * LongHashSet is built on it.
+ */
+public class LongIntMap {
+    private static final int MIN_CAPACITY = 16;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] mKeys;
+    private int[] mValues;
+    private int mSize;
+    private boolean mHasEmptyKey;
+    private int mEmptyKeyValue;
+
+    public LongIntMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Public constructor
+     * @param expectedSize - number of keys the map can hold without growing
+     */
+    public LongIntMap(int expectedSize) {
+        int capacity = tableSize(expectedSize);
+        mKeys = new long[capacity];
+        mValues = new int[capacity];
+        Arrays.fill(mKeys, EMPTY);
+    }
+
+    /**
+     * Maps a key to a value, replacing the value it was mapped to.
+     * @param key - key
+     * @param value - value
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            if (!mHasEmptyKey) {
+                mHasEmptyKey = true;
+                mSize++;
+            }
+            mEmptyKeyValue = value;
+            return;
+        }
+        int index = indexOf(key);
+        mValues[index] = value;
+        if (mKeys[index] == key) {
+            return;
+        }
+        mKeys[index] = key;
+        mSize++;
+        if (mSize * 2 > mKeys.length) {
+            rehash(mKeys.length * 2);
+        }
+    }
+
+    /**
+     * Returns the value a key is mapped to.
+     * @param key - key to look for
+     * @param defaultValue - value to return if the key is not in the map
+     * @return value, or defaultValue
+     */
+    public int get(long key, int defaultValue) {
+        if (key == EMPTY) {
+            return mHasEmptyKey ? mEmptyKeyValue : defaultValue;
+        }
+        int index = indexOf(key);
+        return (mKeys[index] == key) ? mValues[index] : defaultValue;
+    }
+
+    /**
+     * Checks whether the map contains a key.
+     * @param key - key to look for
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(long key) {
+        return (key == EMPTY) ? mHasEmptyKey : mKeys[indexOf(key)] == key;
+    }
+
+    /**
+     * Removes a key from the map.
+     * @param key - key to remove
+     * @return true if the map contained the key
+     */
+    public boolean remove(long key) {
+        if (key == EMPTY) {
+            if (!mHasEmptyKey) {
+                return false;
+            }
+            mHasEmptyKey = false;
+            mSize--;
+            return true;
+        }
+        int index = indexOf(key);
+        if (mKeys[index] != key) {
+            return false;
+        }
+        mKeys[index] = EMPTY;
+        mSize--;
+
+        // Shift back the entries of the probe sequence, so lookups don't stop early.
+        int mask = mKeys.length - 1;
+        int next = (index + 1) & mask;
+        while (mKeys[next] != EMPTY) {
+            long moved = mKeys[next];
+            int value = mValues[next];
+            mKeys[next] = EMPTY;
+            int target = indexOf(moved);
+            mKeys[target] = moved;
+            mValues[target] = value;
+            next = (next + 1) & mask;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     * @return number of keys
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Checks whether the map is empty.
+     * @return true if the map has no keys
+     */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Removes all keys from the map.
+     */
+    public void clear() {
+        if (mSize > 0) {
+            Arrays.fill(mKeys, EMPTY);
+            mHasEmptyKey = false;
+            mSize = 0;
+        }
+    }
+
+    /**
+     * Copies the keys of the map into a new array, in no particular order.
+     * @return array of keys
+     */
+    public long[] toKeyArray() {
+        long[] keys = new long[mSize];
+        int i = 0;
+        if (mHasEmptyKey) {
+            keys[i++] = EMPTY;
+        }
+        for (long key : mKeys) {
+            if (key != EMPTY) {
+                keys[i++] = key;
+            }
+        }
+        return keys;
+    }
+
+    /** Private methods */
+
+    private int indexOf(long key) {
+        int mask = mKeys.length - 1;
+        int index = hash(key) & mask;
+        while (mKeys[index] != EMPTY && mKeys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int capacity) {
+        long[] keys = mKeys;
+        int[] values = mValues;
+        mKeys = new long[capacity];
+        mValues = new int[capacity];
+        Arrays.fill(mKeys, EMPTY);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                int index = indexOf(keys[i]);
+                mKeys[index] = keys[i];
+                mValues[index] = values[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        // Spread the bits, since stable IDs are often sequential.
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSize(int expectedSize) {
+        int size = MIN_CAPACITY;
+        while (size < expectedSize * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
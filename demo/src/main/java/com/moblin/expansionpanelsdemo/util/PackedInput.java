@@ -0,0 +1,89 @@
+package com.moblin.expansionpanelsdemo.util;
+
+/**
+ * Reads the numbers written by PackedOutput, in the same order.
+ * Throws IllegalArgumentException on truncated or malformed data, which
+ * callers restoring saved state should treat as "nothing saved".
+ */
+public class PackedInput {
+    private final byte[] mData;
+    private int mPosition;
+
+    /**
+     * Public constructor
+     * @param data - bytes written by PackedOutput
+     */
+    public PackedInput(byte[] data) {
+        mData = data;
+    }
+
+    /**
+     * Reads a non-negative int.
+     * @return value
+     */
+    public int readInt() {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Malformed int at " + mPosition);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a long of any sign.
+     * @return value
+     */
+    public long readLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Checks whether there are bytes left to read.
+     * @return true if not all the bytes were read
+     */
+    public boolean hasRemaining() {
+        return mPosition < mData.length;
+    }
+
+    /**
+     * Returns the number of bytes left to read. Every number takes at least
+     * a byte, so it bounds the number of values left, e.g. to check a count
+     * before allocating for it.
+     * @return number of bytes
+     */
+    public int remaining() {
+        return mData.length - mPosition;
+    }
+
+    /**
+     * Reads a count of entries that take at least the given number of bytes
+     * each, and checks that the data is long enough to hold them.
+     * @param minEntrySize - minimal size of an entry, in bytes
+     * @return count
+     */
+    public int readCount(int minEntrySize) {
+        int count = readInt();
+        if (count < 0 || count > remaining() / minEntrySize) {
+            throw new IllegalArgumentException("Count " + count + " exceeds the data");
+        }
+        return count;
+    }
+
+    /** Private methods */
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (mPosition >= mData.length) {
+                throw new IllegalArgumentException("Truncated data");
+            }
+            byte b = mData[mPosition++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at " + mPosition);
+    }
+}
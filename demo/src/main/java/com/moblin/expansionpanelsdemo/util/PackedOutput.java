@@ -0,0 +1,72 @@
+package com.moblin.expansionpanelsdemo.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that writes numbers as variable-length integers:
+ * 7 bits per byte, small values take a single byte. Signed longs are
+ * zigzag-encoded first, so small negative values stay short too.
+ * Read the output with PackedInput.
+ */
+public class PackedOutput {
+    private byte[] mBuffer;
+    private int mSize;
+
+    public PackedOutput() {
+        this(32);
+    }
+
+    /**
+     * Public constructor
+     * @param capacity - initial capacity in bytes
+     */
+    public PackedOutput(int capacity) {
+        mBuffer = new byte[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Writes a non-negative int.
+     * @param value - value to write, must not be negative
+     */
+    public void writeInt(int value) {
+        Assert.isTrue(value >= 0, "Negative value: ", value);
+        writeVarLong(value);
+    }
+
+    /**
+     * Writes a long of any sign.
+     * @param value - value to write
+     */
+    public void writeLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Returns the number of written bytes.
+     * @return number of bytes
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Copies the written bytes into a new array.
+     * @return written bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(mBuffer, mSize);
+    }
+
+    /** Private methods */
+
+    private void writeVarLong(long value) {
+        if (mSize + 10 > mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mSize + 10));
+        }
+        while ((value & ~0x7FL) != 0) {
+            mBuffer[mSize++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        mBuffer[mSize++] = (byte) value;
+    }
+}
@@ -0,0 +1,136 @@
+package com.moblin.expansionpanelsdemo.util;
+
+import android.support.v4.util.AtomicFile;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes snapshots of some state to a file on the disk I/O thread. A snapshot
+ * is written after a delay; snapshots scheduled meanwhile replace it, so a
+ * burst of changes costs a single write of the newest state. Files are
+ * replaced atomically, a crash during a write leaves the previous version.
+ */
+public class WriteBehindQueue {
+    private static final String TAG = "WriteBehindQueue";
+
+    /**
+     * Immutable state to be written.
+     */
+    public interface Snapshot {
+        /**
+         * Encodes the state. Called on the disk I/O thread.
+         * @return file content
+         */
+        byte[] encode();
+    }
+
+    /**
+     * Receives the content read from the file.
+     */
+    public interface ReadCallback {
+        /**
+         * Called on the main thread.
+         * @param data - file content, or null if there's no file or it can't be read
+         */
+        void onRead(byte[] data);
+    }
+
+    private final AtomicFile mFile;
+    private final long mDelayMs;
+    private final AtomicReference<Snapshot> mPending = new AtomicReference<Snapshot>();
+    private final Runnable mWriteTask = new Runnable() {
+        @Override
+        public void run() {
+            Snapshot snapshot = mPending.getAndSet(null);
+            if (snapshot != null) {
+                write(snapshot.encode());
+            }
+        }
+    };
+
+    /**
+     * Public constructor
+     * @param file - file to write
+     * @param delayMs - time to wait for newer snapshots before writing
+     */
+    public WriteBehindQueue(File file, long delayMs) {
+        mFile = new AtomicFile(file);
+        mDelayMs = delayMs;
+    }
+
+    /**
+     * Schedules a snapshot to be written. Doesn't block.
+     * @param snapshot - state to write
+     */
+    public void schedule(Snapshot snapshot) {
+        // Only the first snapshot of a batch schedules the write.
+        if (mPending.getAndSet(snapshot) == null) {
+            AppExecutors.diskIO().schedule(mWriteTask, mDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the pending snapshot without waiting for the delay to pass,
+     * typically when the app goes to the background. Doesn't block.
+     */
+    public void flush() {
+        if (mPending.get() != null) {
+            AppExecutors.diskIO().execute(mWriteTask);
+        }
+    }
+
+    /**
+     * Reads the file on the disk I/O thread, after the writes scheduled
+     * before it. The pending snapshot, if any, is not written first.
+     * @param callback - receives the file content
+     */
+    public void read(final ReadCallback callback) {
+        final Executor mainThread = AppExecutors.mainThread();
+        AppExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                final byte[] data = readFully();
+                mainThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onRead(data);
+                    }
+                });
+            }
+        });
+    }
+
+    /** Private methods */
+
+    private byte[] readFully() {
+        try {
+            return mFile.readFully();
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read " + mFile.getBaseFile(), e);
+            return null;
+        }
+    }
+
+    private void write(byte[] data) {
+        FileOutputStream out = null;
+        try {
+            out = mFile.startWrite();
+            out.write(data);
+            mFile.finishWrite(out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write " + mFile.getBaseFile(), e);
+            if (out != null) {
+                mFile.failWrite(out);
+            }
+        }
+    }
+}
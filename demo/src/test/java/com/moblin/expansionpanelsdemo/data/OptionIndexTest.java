@@ -0,0 +1,145 @@
+package com.moblin.expansionpanelsdemo.data;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the matches of OptionIndex, and that a search narrowed from the
+ * previous result gives the same result as a search from scratch.
+ */
+public class OptionIndexTest {
+    private static final String[] NAMES = {"Wi-Fi", "Room type", "Breakfast", "Late checkout",
+            "Airport transfer"};
+    private static final String[][] OPTIONS = {
+            {"None", "Free Wi-Fi", "Premium"},
+            {"Single", "Double", "Suite with view"},
+            {"Not included", "Continental", "Full"},
+            {"No", "Until 2 pm"},
+            {"None", "One way", "Return"}};
+
+    private final OptionIndex mIndex =
+            new OptionIndex(new ArrayOptionCatalog(NAMES, OPTIONS));
+
+    @Test
+    public void matchesWordPrefixesInNamesAndOptions() {
+        OptionIndex.Result result = mIndex.search("Ro", null);
+        assertTrue(result.matches(1));
+        assertFalse(result.matchesOption(1));
+        assertEquals(1, result.getMatchCount());
+
+        result = mIndex.search("non", null);
+        assertTrue(result.matches(0));
+        assertTrue(result.matchesOption(0));
+        assertTrue(result.matches(4));
+        assertEquals(2, result.getMatchCount());
+    }
+
+    @Test
+    public void requiresEveryWord() {
+        OptionIndex.Result result = mIndex.search("wi free", null);
+        assertTrue(result.matches(0));
+        assertEquals(1, result.getMatchCount());
+        assertEquals(0, mIndex.search("wi breakfast", null).getMatchCount());
+    }
+
+    @Test
+    public void blankQueryMatchesAll() {
+        assertEquals(NAMES.length, mIndex.search("  ", null).getMatchCount());
+    }
+
+    @Test
+    public void extendedQueryChecksOnlyPreviousMatches() {
+        // "wi" matches Wi-Fi and "Suite with view"; a previous result that
+        // kept only the latter shows whether the others are checked again.
+        BitSet previousMatches = new BitSet();
+        previousMatches.set(1);
+        OptionIndex.Result previous = new OptionIndex.Result(new String[] {"wi"},
+                previousMatches, new BitSet());
+
+        OptionIndex.Result result = mIndex.search("wi", previous);
+        assertTrue(result.matches(1));
+        assertTrue(result.matchesOption(1));
+        assertEquals(1, result.getMatchCount());
+        assertEquals(0, mIndex.search("wif", previous).getMatchCount());
+        assertEquals(2, mIndex.search("wi", null).getMatchCount());
+    }
+
+    @Test
+    public void iteratesOverMatches() {
+        OptionIndex.Result result = mIndex.search("non", null);
+        assertEquals(0, result.nextMatch(0));
+        assertEquals(4, result.nextMatch(1));
+        assertEquals(-1, result.nextMatch(5));
+        assertEquals(0, result.nextOptionMatch(0));
+        assertEquals(4, result.nextOptionMatch(1));
+        assertEquals(-1, mIndex.search("ro", null).nextOptionMatch(0));
+    }
+
+    @Test
+    public void typingMatchesSearchFromScratch() {
+        assertSameAsFullSearch(mIndex, NAMES.length, "suite with vi", "suite with v",
+                "suite", "su", "sui", "n", "no", "non", "non fr", "nonex", "", "l c", "la ch");
+    }
+
+    @Test
+    public void randomTypingMatchesSearchFromScratch() {
+        Random random = new Random(3);
+        String alphabet = "abcde ";
+        String[] names = new String[200];
+        String[][] options = new String[names.length][];
+        for (int setting = 0; setting < names.length; setting++) {
+            names[setting] = randomText(random, alphabet, 8);
+            options[setting] = new String[random.nextInt(4)];
+            for (int option = 0; option < options[setting].length; option++) {
+                options[setting][option] = randomText(random, alphabet, 8);
+            }
+        }
+        OptionIndex index = new OptionIndex(new ArrayOptionCatalog(names, options));
+
+        String[] queries = new String[500];
+        String query = "";
+        for (int i = 0; i < queries.length; i++) {
+            // Mostly typing, sometimes deleting, as in a search field.
+            if (random.nextInt(4) == 0 && !query.isEmpty()) {
+                query = query.substring(0, random.nextInt(query.length()));
+            } else {
+                query += alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            queries[i] = query;
+        }
+        assertSameAsFullSearch(index, names.length, queries);
+    }
+
+    /** Private methods */
+
+    private static void assertSameAsFullSearch(OptionIndex index, int settingCount,
+                                               String... queries) {
+        OptionIndex.Result previous = null;
+        for (String query : queries) {
+            OptionIndex.Result incremental = index.search(query, previous);
+            OptionIndex.Result full = index.search(query, null);
+            for (int setting = 0; setting < settingCount; setting++) {
+                assertEquals("Setting " + setting + " for \"" + query + "\"",
+                        full.matches(setting), incremental.matches(setting));
+                assertEquals("Option of setting " + setting + " for \"" + query + "\"",
+                        full.matchesOption(setting), incremental.matchesOption(setting));
+            }
+            previous = incremental;
+        }
+    }
+
+    private static String randomText(Random random, String alphabet, int maxLength) {
+        StringBuilder text = new StringBuilder();
+        int length = 1 + random.nextInt(maxLength);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}
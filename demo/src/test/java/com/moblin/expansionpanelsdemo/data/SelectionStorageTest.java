@@ -0,0 +1,82 @@
+package com.moblin.expansionpanelsdemo.data;
+
+import com.moblin.expansionpanelsdemo.util.PackedOutput;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Decodes saved selections, including files that are truncated or corrupt,
+ * which must load as an empty store instead of failing.
+ */
+public class SelectionStorageTest {
+    private long[] mPanelIds;
+    private int[] mOptions;
+
+    private final SelectionStorage.LoadCallback mCallback = new SelectionStorage.LoadCallback() {
+        @Override
+        public void onSelectionsLoaded(long[] panelIds, int[] options) {
+            mPanelIds = panelIds;
+            mOptions = options;
+        }
+    };
+
+    @Test
+    public void decodesSavedSelections() {
+        SelectionStorage.decode(encode(1, 2, new long[] {5, 900}, new int[] {0, 3}), mCallback);
+        assertArrayEquals(new long[] {5, 900}, mPanelIds);
+        assertArrayEquals(new int[] {0, 3}, mOptions);
+    }
+
+    @Test
+    public void decodesNothingSavedAsEmpty() {
+        SelectionStorage.decode(null, mCallback);
+        assertEmpty();
+    }
+
+    @Test
+    public void decodesOtherVersionAsEmpty() {
+        SelectionStorage.decode(encode(2, 1, new long[] {5}, new int[] {0}), mCallback);
+        assertEmpty();
+    }
+
+    @Test
+    public void decodesHugeCountAsEmpty() {
+        // Would need gigabytes if allocated before the check.
+        SelectionStorage.decode(encode(1, Integer.MAX_VALUE, new long[] {5}, new int[] {0}), mCallback);
+        assertEmpty();
+    }
+
+    @Test
+    public void decodesTruncatedFilesAsEmpty() {
+        byte[] data = encode(1, 2, new long[] {5, 900}, new int[] {0, 3});
+        for (int length = 0; length < data.length; length++) {
+            mPanelIds = null;
+            SelectionStorage.decode(Arrays.copyOf(data, length), mCallback);
+            assertEmpty();
+        }
+    }
+
+    /** Private methods */
+
+    private void assertEmpty() {
+        assertEquals(0, mPanelIds.length);
+        assertEquals(0, mOptions.length);
+    }
+
+    private static byte[] encode(int version, int count, long[] panelIds, int[] options) {
+        // Same layout as SelectionStorage.save(), with a count that can lie.
+        PackedOutput out = new PackedOutput();
+        out.writeInt(version);
+        out.writeInt(count);
+        for (int i = 0; i < panelIds.length; i++) {
+            out.writeLong(panelIds[i]);
+            out.writeInt(options[i]);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,169 @@
+package com.moblin.expansionpanelsdemo.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static com.moblin.expansionpanelsdemo.data.SelectionStore.NOT_SELECTED;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the draft and committed layers of SelectionStore, the batching of
+ * the commit notifications and the validation of restored selections.
+ */
+public class SelectionStoreTest {
+    // Panels with an odd ID have no option 3.
+    private static final SelectionStore.Validator VALIDATOR = new SelectionStore.Validator() {
+        @Override
+        public boolean isValid(long panelId, int option) {
+            return option != 3 || panelId % 2 == 0;
+        }
+    };
+
+    private final List<Runnable> mMainThreadQueue = new ArrayList<Runnable>();
+    private final Executor mMainThread = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mMainThreadQueue.add(command);
+        }
+    };
+    private final List<long[]> mCommits = new ArrayList<long[]>();
+    private SelectionStore mStore;
+
+    @Before
+    public void setUp() {
+        mStore = new SelectionStore(VALIDATOR, mMainThread);
+        mStore.setListener(new SelectionStore.Listener() {
+            @Override
+            public void onSelectionsCommitted(long[] panelIds) {
+                Arrays.sort(panelIds);
+                mCommits.add(panelIds);
+            }
+        });
+    }
+
+    @Test
+    public void draftDefaultsToCommitted() {
+        assertEquals(NOT_SELECTED, mStore.getDraft(1));
+        commit(1, 2);
+        assertEquals(2, mStore.getDraft(1));
+        mStore.setDraft(1, 0);
+        assertEquals(0, mStore.getDraft(1));
+        assertEquals(2, mStore.getCommitted(1));
+        mStore.discardDraft(1);
+        assertEquals(2, mStore.getDraft(1));
+    }
+
+    @Test
+    public void commitReplacesCommittedSelection() {
+        commit(1, 2);
+        commit(1, 0);
+        assertEquals(0, mStore.getCommitted(1));
+        assertEquals(0, mStore.getDraft(1));
+    }
+
+    @Test
+    public void clearedDraftIsNotCommitted() {
+        commit(1, 2);
+        commit(1, NOT_SELECTED);
+        assertEquals(2, mStore.getCommitted(1));
+        assertEquals(2, mStore.getDraft(1));
+    }
+
+    @Test
+    public void commitsOfOneMessageAreReportedOnce() {
+        commit(5, 1);
+        commit(2, 0);
+        commit(5, 2);
+        assertTrue(mCommits.isEmpty());
+        runMainThread();
+        assertEquals(1, mCommits.size());
+        assertArrayEquals(new long[] {2, 5}, mCommits.get(0));
+    }
+
+    @Test
+    public void unchangedSelectionsAreNotReported() {
+        commit(1, 2);
+        runMainThread();
+        mCommits.clear();
+
+        // A draft equal to the committed selection is dropped.
+        commit(1, 2);
+        mStore.commit(3);
+        runMainThread();
+        assertTrue(mCommits.isEmpty());
+    }
+
+    @Test
+    public void mergeKeepsCommittedAndDropsInvalid() {
+        commit(1, 0);
+        mStore.mergeCommitted(new long[] {1, 2, 3, 4}, new int[] {1, 1, 3, 3});
+        assertEquals(0, mStore.getCommitted(1));
+        assertEquals(1, mStore.getCommitted(2));
+        assertEquals(NOT_SELECTED, mStore.getCommitted(3));
+        assertEquals(3, mStore.getCommitted(4));
+        assertArrayEquals(new long[] {1, 2, 4}, mStore.getCommittedIds());
+    }
+
+    @Test
+    public void restoresBothLayers() {
+        commit(10, 1);
+        commit(-4, 3);
+        mStore.setDraft(10, 2);
+        mStore.setDraft(7, 0);
+        byte[] data = mStore.encode();
+
+        SelectionStore restored = new SelectionStore(VALIDATOR, mMainThread);
+        assertTrue(restored.restore(data));
+        assertArrayEquals(new long[] {-4, 10}, restored.getCommittedIds());
+        assertEquals(1, restored.getCommitted(10));
+        assertEquals(3, restored.getCommitted(-4));
+        assertEquals(2, restored.getDraft(10));
+        assertEquals(0, restored.getDraft(7));
+    }
+
+    @Test
+    public void restoreDropsInvalidSelections() {
+        SelectionStore unchecked = new SelectionStore(new SelectionStore.Validator() {
+            @Override
+            public boolean isValid(long panelId, int option) {
+                return true;
+            }
+        }, mMainThread);
+        unchecked.mergeCommitted(new long[] {1, 2}, new int[] {3, 3});
+        assertTrue(mStore.restore(unchecked.encode()));
+        assertArrayEquals(new long[] {2}, mStore.getCommittedIds());
+    }
+
+    @Test
+    public void corruptDataLeavesStoreAsIs() {
+        commit(1, 2);
+        mStore.setDraft(1, 0);
+        byte[] data = mStore.encode();
+        for (int length = 0; length < data.length; length++) {
+            assertFalse(mStore.restore(Arrays.copyOf(data, length)));
+        }
+        assertEquals(2, mStore.getCommitted(1));
+        assertEquals(0, mStore.getDraft(1));
+    }
+
+    /** Private methods */
+
+    private void commit(long panelId, int option) {
+        mStore.setDraft(panelId, option);
+        mStore.commit(panelId);
+    }
+
+    private void runMainThread() {
+        while (!mMainThreadQueue.isEmpty()) {
+            mMainThreadQueue.remove(0).run();
+        }
+    }
+}
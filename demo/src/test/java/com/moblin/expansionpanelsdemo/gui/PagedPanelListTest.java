@@ -0,0 +1,175 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import com.moblin.expansionpanelsdemo.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that PagedPanelList knows the panel IDs before their pages load,
+ * indexes the positions of the loaded panels, evicts far pages and rejects
+ * pages that don't match the source's IDs.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class PagedPanelListTest {
+    private static final int COUNT = 100;
+    private static final int PAGE_SIZE = 10;
+    // Panel IDs differ from the positions, so one can't pass for the other.
+    private static final long FIRST_ID = 1000;
+
+    private final List<Runnable> mBackgroundQueue = new ArrayList<Runnable>();
+    private final List<Runnable> mMainThreadQueue = new ArrayList<Runnable>();
+    private final Executor mBackground = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mBackgroundQueue.add(command);
+        }
+    };
+    private final Executor mMainThread = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mMainThreadQueue.add(command);
+        }
+    };
+    private final List<Integer> mLoadedRanges = new ArrayList<Integer>();
+    private final PagedPanelList.Callback mCallback = new PagedPanelList.Callback() {
+        @Override
+        public void onCountLoaded(int count) {
+        }
+
+        @Override
+        public void onRangeLoaded(int start, int count) {
+            mLoadedRanges.add(start);
+        }
+    };
+    private long mIdShift;
+    private PagedPanelList mList;
+
+    @Before
+    public void setUp() {
+        // No prefetch, so each access loads a single page.
+        mList = new PagedPanelList(new Source(), PAGE_SIZE, 0, 1, mCallback,
+                mBackground, mMainThread);
+        mList.start();
+        runQueues();
+    }
+
+    @Test
+    public void knowsIdsBeforeLoading() {
+        assertEquals(COUNT, mList.size());
+        assertEquals(FIRST_ID + 5, mList.getPanelId(5));
+        assertNull(mList.peek(5));
+        assertEquals(-1, mList.positionOf(FIRST_ID + 5, -1));
+
+        assertNull(mList.get(5));
+        runQueues();
+        assertEquals(FIRST_ID + 5, mList.peek(5).getPanelId());
+        assertEquals(FIRST_ID + 5, mList.getPanelId(5));
+    }
+
+    @Test
+    public void indexesLoadedPanels() {
+        mList.get(25);
+        runQueues();
+        for (int position = 20; position < 30; position++) {
+            assertEquals(position, mList.positionOf(FIRST_ID + position, -1));
+        }
+        assertEquals(-1, mList.positionOf(FIRST_ID + 30, -1));
+    }
+
+    @Test
+    public void unindexesEvictedPages() {
+        // Three pages fit: the accessed one and its neighbours.
+        for (int position = 5; position < COUNT; position += 2 * PAGE_SIZE) {
+            mList.get(position);
+            runQueues();
+        }
+        assertNull(mList.peek(5));
+        assertEquals(-1, mList.positionOf(FIRST_ID + 5, -1));
+        assertEquals(-1, mList.positionOf(FIRST_ID + 25, -1));
+        assertEquals(45, mList.positionOf(FIRST_ID + 45, -1));
+        assertEquals(65, mList.positionOf(FIRST_ID + 65, -1));
+        assertEquals(85, mList.positionOf(FIRST_ID + 85, -1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsPagesWithOtherIds() {
+        mIdShift = 1;
+        mList.get(5);
+        runQueues();
+    }
+
+    @Test
+    public void discardsLoadsAfterClose() {
+        mList.get(5);
+        mList.close();
+        runQueues();
+        assertEquals(0, mLoadedRanges.size());
+        assertNull(mList.peek(5));
+        assertEquals(-1, mList.positionOf(FIRST_ID + 5, -1));
+    }
+
+    /** Private methods */
+
+    private void runQueues() {
+        while (!mBackgroundQueue.isEmpty() || !mMainThreadQueue.isEmpty()) {
+            List<Runnable> commands = new ArrayList<Runnable>(mBackgroundQueue);
+            commands.addAll(mMainThreadQueue);
+            mBackgroundQueue.clear();
+            mMainThreadQueue.clear();
+            for (Runnable command : commands) {
+                command.run();
+            }
+        }
+    }
+
+    private class Source implements PanelDataSource {
+        @Override
+        public int getCount() {
+            return COUNT;
+        }
+
+        @Override
+        public long getPanelId(int position) {
+            return FIRST_ID + position;
+        }
+
+        @Override
+        public List<? extends PanelModel> loadRange(int start, int count) {
+            List<PanelModel> panels = new ArrayList<PanelModel>(count);
+            for (int i = 0; i < count; i++) {
+                panels.add(new Panel(getPanelId(start + i) + mIdShift));
+            }
+            return panels;
+        }
+    }
+
+    private static class Panel implements PanelModel {
+        private final long mId;
+
+        Panel(long id) {
+            mId = id;
+        }
+
+        @Override
+        public long getPanelId() {
+            return mId;
+        }
+
+        @Override
+        public boolean hasSameContent(PanelModel other) {
+            return true;
+        }
+    }
+}
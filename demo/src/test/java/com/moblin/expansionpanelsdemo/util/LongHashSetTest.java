@@ -0,0 +1,64 @@
+package com.moblin.expansionpanelsdemo.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks LongHashSet against HashSet.
+ */
+public class LongHashSetTest {
+    @Test
+    public void addAndRemoveReportChanges() {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.add(5));
+        assertFalse(set.add(5));
+        assertTrue(set.contains(5));
+        assertTrue(set.remove(5));
+        assertFalse(set.remove(5));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void matchesHashSet() {
+        LongHashSet set = new LongHashSet(2);
+        Set<Long> expected = new HashSet<Long>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(500) - 250;
+            if (random.nextInt(3) > 0) {
+                assertEquals(expected.add(key), set.add(key));
+            } else {
+                assertEquals(expected.remove(key), set.remove(key));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        long[] keys = set.toArray();
+        Arrays.sort(keys);
+        long[] expectedKeys = new long[expected.size()];
+        int i = 0;
+        for (long key : expected) {
+            expectedKeys[i++] = key;
+        }
+        Arrays.sort(expectedKeys);
+        assertArrayEquals(expectedKeys, keys);
+    }
+
+    @Test
+    public void holdsMinValue() {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertArrayEquals(new long[] {Long.MIN_VALUE}, set.toArray());
+        set.clear();
+        assertFalse(set.contains(Long.MIN_VALUE));
+    }
+}
@@ -0,0 +1,114 @@
+package com.moblin.expansionpanelsdemo.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks LongIntMap against HashMap, in particular the removals that shift
+ * back the entries of a probe sequence, and the growth of the table.
+ */
+public class LongIntMapTest {
+    private static final int MISSING = -1;
+
+    @Test
+    public void putReplacesValue() {
+        LongIntMap map = new LongIntMap();
+        map.put(7, 1);
+        map.put(7, 2);
+        assertEquals(1, map.size());
+        assertEquals(2, map.get(7, MISSING));
+        assertEquals(MISSING, map.get(8, MISSING));
+    }
+
+    @Test
+    public void removeKeepsProbeSequencesReachable() {
+        // Dense keys in a small table collide, so removals shift entries back.
+        LongIntMap map = new LongIntMap(4);
+        Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(64);
+            if (random.nextBoolean()) {
+                map.put(key, i);
+                expected.put(key, i);
+            } else {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = 0; key < 64; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value != null, map.containsKey(key));
+            assertEquals(value != null ? value : MISSING, map.get(key, MISSING));
+        }
+    }
+
+    @Test
+    public void removeWrapsAroundTheTable() {
+        LongIntMap map = new LongIntMap(8);
+        long[] keys = new long[8];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (long) i << 40;
+            map.put(keys[i], i);
+        }
+        for (int i = 0; i < keys.length; i += 2) {
+            assertTrue(map.remove(keys[i]));
+            assertFalse(map.remove(keys[i]));
+        }
+        for (int i = 1; i < keys.length; i += 2) {
+            assertEquals(i, map.get(keys[i], MISSING));
+        }
+        assertEquals(keys.length / 2, map.size());
+    }
+
+    @Test
+    public void growsPastExpectedSize() {
+        LongIntMap map = new LongIntMap(1);
+        for (int i = 0; i < 10000; i++) {
+            map.put(i * 31L - 5000, i);
+        }
+        assertEquals(10000, map.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, map.get(i * 31L - 5000, MISSING));
+        }
+    }
+
+    @Test
+    public void holdsMinValueKey() {
+        // Long.MIN_VALUE marks empty slots, so it's kept aside.
+        LongIntMap map = new LongIntMap();
+        assertFalse(map.containsKey(Long.MIN_VALUE));
+        map.put(Long.MIN_VALUE, 3);
+        map.put(0, 4);
+        assertEquals(2, map.size());
+        assertEquals(3, map.get(Long.MIN_VALUE, MISSING));
+        long[] keys = map.toKeyArray();
+        Arrays.sort(keys);
+        assertArrayEquals(new long[] {Long.MIN_VALUE, 0}, keys);
+        assertTrue(map.remove(Long.MIN_VALUE));
+        assertFalse(map.remove(Long.MIN_VALUE));
+        assertEquals(MISSING, map.get(Long.MIN_VALUE, MISSING));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void clearRemovesAllKeys() {
+        LongIntMap map = new LongIntMap();
+        map.put(Long.MIN_VALUE, 1);
+        map.put(1, 2);
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(Long.MIN_VALUE));
+        assertFalse(map.containsKey(1));
+        assertEquals(0, map.toKeyArray().length);
+    }
+}
@@ -0,0 +1,106 @@
+package com.moblin.expansionpanelsdemo.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Reads back what PackedOutput writes, and checks that truncated or
+ * malformed data is rejected with IllegalArgumentException.
+ */
+public class PackedInputTest {
+    private static final long[] LONGS = {0, 1, -1, 63, -64, 64, -65, 300, Integer.MAX_VALUE,
+            Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+    private static final int[] INTS = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE};
+
+    @Test
+    public void readsWhatWasWritten() {
+        PackedOutput out = new PackedOutput(1);
+        for (long value : LONGS) {
+            out.writeLong(value);
+        }
+        for (int value : INTS) {
+            out.writeInt(value);
+        }
+        PackedInput in = new PackedInput(out.toByteArray());
+        for (long value : LONGS) {
+            assertEquals(value, in.readLong());
+        }
+        for (int value : INTS) {
+            assertEquals(value, in.readInt());
+        }
+        assertFalse(in.hasRemaining());
+        assertEquals(0, in.remaining());
+    }
+
+    @Test
+    public void writesSmallValuesInOneByte() {
+        PackedOutput out = new PackedOutput();
+        out.writeInt(127);
+        out.writeLong(-64);
+        out.writeLong(63);
+        assertEquals(3, out.size());
+    }
+
+    @Test
+    public void rejectsEveryTruncation() {
+        PackedOutput out = new PackedOutput();
+        for (long value : LONGS) {
+            out.writeLong(value);
+        }
+        byte[] data = out.toByteArray();
+        for (int length = 0; length < data.length; length++) {
+            PackedInput in = new PackedInput(Arrays.copyOf(data, length));
+            try {
+                for (int i = 0; i < LONGS.length; i++) {
+                    in.readLong();
+                }
+                fail("Read " + LONGS.length + " values from " + length + " bytes");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIntOutOfRange() {
+        PackedOutput out = new PackedOutput();
+        out.writeLong(Long.MIN_VALUE);
+        new PackedInput(out.toByteArray()).readInt();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOverlongVarint() {
+        byte[] data = new byte[11];
+        Arrays.fill(data, (byte) 0x80);
+        new PackedInput(data).readLong();
+    }
+
+    @Test
+    public void readCountAcceptsCountsTheDataCanHold() {
+        PackedOutput out = new PackedOutput();
+        out.writeInt(2);
+        out.writeLong(1);
+        out.writeInt(1);
+        out.writeLong(2);
+        out.writeInt(2);
+        PackedInput in = new PackedInput(out.toByteArray());
+        assertEquals(2, in.readCount(2));
+        assertEquals(4, in.remaining());
+        assertTrue(in.hasRemaining());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readCountRejectsCountsBeyondTheData() {
+        PackedOutput out = new PackedOutput();
+        out.writeInt(Integer.MAX_VALUE);
+        out.writeLong(1);
+        out.writeInt(1);
+        new PackedInput(out.toByteArray()).readCount(2);
+    }
+}
@@ -0,0 +1,291 @@
+package com.moblin.expansionpanelsdemo.gui;
+
+import android.app.Activity;
+import android.os.Build;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import com.moblin.expansionpanelsdemo.BuildConfig;
+import com.moblin.expansionpanelsdemo.gui.ExpansionPanelsAdapter.ViewHolderType;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.Scheduler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the adapter's hot paths on the JVM, writes the results in the format
+ * of BenchmarkActivity to build/outputs/benchmark/benchmark.json, and fails
+ * when they regress. The gates are on counts that don't depend on the
+ * machine: layout passes and notifications per toggle, panels and content
+ * inflated after warm-up, and allocations of a redundant rebind. The time ceilings are generous, they
+ * catch only gross regressions; BenchmarkActivity measures the times on a
+ * device.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class PanelBenchmarkTest {
+    private static final File RESULTS_FILE = new File("build/outputs/benchmark/benchmark.json");
+    private static final int PANEL_COUNT = 200;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 15;
+    // Toggled in turn, each is expanded and collapsed during the warm-up.
+    private static final int TOGGLED_PANELS = 3;
+    private static final long FRAME_MS = 16;
+    // Longer than any toggle animation, a toggle that takes more never settles.
+    private static final int MAX_FRAMES_PER_TOGGLE = 120;
+    private static final int REBIND_OPS = 10000;
+
+    // One pass for the change, one for a relayout it may trigger. A pass
+    // per animation frame would be an order of magnitude more.
+    private static final double MAX_LAYOUT_PASSES_PER_TOGGLE = 2;
+    private static final double MAX_MEASURE_PASSES_PER_TOGGLE = 4;
+    private static final double MAX_CREATE_MS_PER_OP = 50;
+    private static final double MAX_BIND_MS_PER_OP = 10;
+    // Slack for the measurement itself, a single boxed value per op exceeds it.
+    private static final long MAX_REBIND_BYTES_PER_OP = 1;
+    // The toggled panel, and in SINGLE mode the one it collapses.
+    private static final double MAX_RANGE_CHANGES_PER_TOGGLE = 2;
+
+    private Activity mActivity;
+    private CountingRecyclerView mRecyclerView;
+    private PanelBenchmark mBenchmark;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class)
+                .create().start().resume().visible().get();
+        mRecyclerView = new CountingRecyclerView(mActivity);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(mActivity));
+        mActivity.setContentView(mRecyclerView);
+        mBenchmark = new PanelBenchmark(mRecyclerView, WARMUP, ITERATIONS);
+        runFrames();
+    }
+
+    @Test
+    public void hotPathsStayWithinCeilings() throws Exception {
+        JSONObject result = new JSONObject()
+                .put("create", mBenchmark.measureCreate(newAdapter()))
+                .put("bind_collapsed", mBenchmark.measureBind(newAdapter(), false))
+                .put("bind_expanded", mBenchmark.measureBind(newAdapter(), true))
+                .put("rebind", measureRebind());
+        measureToggle(result);
+        JSONObject eagerResult = new JSONObject()
+                .put("bind_collapsed", mBenchmark.measureBind(newEagerAdapter(), false));
+        writeResults(new JSONObject()
+                .put("device", "robolectric")
+                .put("sdk", Build.VERSION.SDK_INT)
+                .put("panels", PANEL_COUNT)
+                .put("warmup", WARMUP)
+                .put("iterations", ITERATIONS)
+                .put("adapter", result)
+                .put("adapter_eager", eagerResult));
+
+        assertBelow("create ms/op",
+                result.getJSONObject("create").getDouble("ns_per_op") / 1e6,
+                MAX_CREATE_MS_PER_OP);
+        assertBelow("bind_collapsed ms/op",
+                result.getJSONObject("bind_collapsed").getDouble("ns_per_op") / 1e6,
+                MAX_BIND_MS_PER_OP);
+        assertBelow("bind_expanded ms/op",
+                result.getJSONObject("bind_expanded").getDouble("ns_per_op") / 1e6,
+                MAX_BIND_MS_PER_OP);
+        assertBelow("Rebind bytes/op",
+                result.getJSONObject("rebind").getLong("bytes_per_op"),
+                MAX_REBIND_BYTES_PER_OP);
+        JSONObject toggle = result.getJSONObject("toggle");
+        assertBelow("Measure passes per toggle", toggle.getDouble("measure_passes_per_op"),
+                MAX_MEASURE_PASSES_PER_TOGGLE);
+        assertBelow("Layout passes per toggle", toggle.getDouble("layout_passes_per_op"),
+                MAX_LAYOUT_PASSES_PER_TOGGLE);
+        // The content of the toggled panels is pooled since the warm-up.
+        assertEquals("Content inflated after warm-up", 0,
+                result.getJSONObject("content_pool").getInt("misses_after_warmup"));
+        JSONObject metrics = result.getJSONObject("metrics");
+        assertEquals("Panels created after warm-up", 0, metrics.getInt("panels_created"));
+        // Toggles notify the toggled panels only, never the whole data-set.
+        JSONObject notifications = metrics.getJSONObject("notifications");
+        assertEquals("Data-set changes per toggle", 0, notifications.getInt("data_set_changed"));
+        assertBelow("Range changes per toggle",
+                notifications.getInt("range_changed") / (double) ITERATIONS,
+                MAX_RANGE_CHANGES_PER_TOGGLE);
+    }
+
+    @Test
+    public void lazyContentSkipsCollapsedPanels() throws Exception {
+        MetricsRecorder lazy = bindCollapsed(newAdapter());
+        assertEquals(0, lazy.getContentCreatedCount(ViewHolderType.DETAILS));
+        assertEquals(0, lazy.getContentBoundCount(ViewHolderType.DETAILS));
+
+        MetricsRecorder eager = bindCollapsed(newEagerAdapter());
+        assertEquals(1, eager.getContentCreatedCount(ViewHolderType.DETAILS));
+        assertEquals(1, eager.getContentBoundCount(ViewHolderType.DETAILS));
+        assertEquals(1, eager.getContentBoundCount(ViewHolderType.ACTIONS));
+    }
+
+    @Test
+    public void deferredBindsStayWithinBudget() {
+        ExpansionPanelsAdapter adapter = newEagerAdapter();
+        // At least one bind runs per frame, so a zero budget allows just one.
+        adapter.setDeferredBindBudget(0);
+        MetricsRecorder metrics = new MetricsRecorder();
+        adapter.setMetricsListener(metrics);
+
+        // Paused, so each task is a single traversal or frame callback.
+        Scheduler scheduler = Robolectric.getForegroundThreadScheduler();
+        scheduler.pause();
+        int maxBindsPerTask = 0;
+        try {
+            mRecyclerView.setAdapter(adapter);
+            int bound = 0;
+            while (scheduler.runOneTask()) {
+                int nowBound = metrics.getContentBoundCount(ViewHolderType.DETAILS);
+                maxBindsPerTask = Math.max(maxBindsPerTask, nowBound - bound);
+                bound = nowBound;
+            }
+        } finally {
+            scheduler.unPause();
+        }
+
+        assertTrue("Too few panels laid out", mRecyclerView.getChildCount() > 1);
+        assertEquals("Deferred binds per frame", 1, maxBindsPerTask);
+        assertEquals("Collapsed panels bound", mRecyclerView.getChildCount(),
+                metrics.getContentBoundCount(ViewHolderType.DETAILS));
+    }
+
+    /** Private methods */
+
+    private ExpansionPanelsAdapter newAdapter() {
+        return new BenchmarkAdapter(mActivity.getResources(), PANEL_COUNT);
+    }
+
+    private ExpansionPanelsAdapter newEagerAdapter() {
+        ExpansionPanelsAdapter adapter = newAdapter();
+        adapter.setLazyContentEnabled(false);
+        return adapter;
+    }
+
+    private MetricsRecorder bindCollapsed(ExpansionPanelsAdapter adapter) {
+        MetricsRecorder metrics = new MetricsRecorder();
+        adapter.setMetricsListener(metrics);
+        ExpansionPanelsAdapter.ViewHolder holder =
+                (ExpansionPanelsAdapter.ViewHolder) adapter.createViewHolder(mRecyclerView, 0);
+        adapter.bindViewHolder(holder, 1);
+        return metrics;
+    }
+
+    private JSONObject measureRebind() throws JSONException {
+        ExpansionPanelsAdapter adapter = newAdapter();
+        ExpansionPanelsAdapter.ViewHolder holder =
+                (ExpansionPanelsAdapter.ViewHolder) adapter.createViewHolder(mRecyclerView, 0);
+        adapter.bindViewHolder(holder, 1);
+        for (int i = 0; i < REBIND_OPS; i++) {
+            adapter.onBindViewHolder(holder, 1);
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < REBIND_OPS; i++) {
+            adapter.onBindViewHolder(holder, 1);
+        }
+        return new JSONObject().put("bytes_per_op", (allocatedBytes() - before) / REBIND_OPS);
+    }
+
+    private void measureToggle(JSONObject result) throws JSONException {
+        ExpansionPanelsAdapter adapter = newAdapter();
+        mRecyclerView.setAdapter(adapter);
+        runFrames();
+        assertTrue("Too few panels laid out", mRecyclerView.getChildCount() > TOGGLED_PANELS);
+
+        for (int i = 0; i < 2 * TOGGLED_PANELS; i++) {
+            toggle(adapter, i % TOGGLED_PANELS);
+        }
+        ContentViewPool pool = adapter.getContentViewPool();
+        int misses = pool.getMissCount();
+        MetricsRecorder metrics = new MetricsRecorder();
+        adapter.setMetricsListener(metrics);
+        int frames = 0;
+        int measures = 0;
+        int layouts = 0;
+        long[] times = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            mRecyclerView.resetCounts();
+            long start = System.nanoTime();
+            frames += toggle(adapter, i % TOGGLED_PANELS);
+            times[i] = System.nanoTime() - start;
+            measures += mRecyclerView.getMeasureCount();
+            layouts += mRecyclerView.getLayoutCount();
+        }
+
+        double ops = ITERATIONS;
+        result.put("toggle", new JSONObject()
+                .put("ms_per_op", PanelBenchmark.median(times) / 1e6)
+                .put("frames_per_op", frames / ops)
+                .put("measure_passes_per_op", measures / ops)
+                .put("layout_passes_per_op", layouts / ops));
+        result.put("content_pool", new JSONObject()
+                .put("hits", pool.getHitCount())
+                .put("misses", pool.getMissCount())
+                .put("evictions", pool.getEvictionCount())
+                .put("misses_after_warmup", pool.getMissCount() - misses));
+        result.put("metrics", metrics.toJson());
+    }
+
+    private int toggle(ExpansionPanelsAdapter adapter, int position) {
+        adapter.setExpanded(position, !adapter.isExpanded(position));
+        return runFrames();
+    }
+
+    private int runFrames() {
+        // Frames run the traversals, the animations and the deferred binds.
+        for (int frame = 1; frame <= MAX_FRAMES_PER_TOGGLE; frame++) {
+            Robolectric.getForegroundThreadScheduler().advanceBy(FRAME_MS, TimeUnit.MILLISECONDS);
+            if (!isBusy(mRecyclerView)) {
+                return frame;
+            }
+        }
+        assertFalse("Frames don't settle", isBusy(mRecyclerView));
+        return MAX_FRAMES_PER_TOGGLE;
+    }
+
+    private static boolean isBusy(RecyclerView recyclerView) {
+        return recyclerView.isAnimating() || recyclerView.isLayoutRequested();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void writeResults(JSONObject results) throws IOException, JSONException {
+        // Same format as BenchmarkActivity's, so the results compare directly.
+        File dir = RESULTS_FILE.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        FileOutputStream out = new FileOutputStream(RESULTS_FILE);
+        try {
+            out.write(results.toString(2).getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void assertBelow(String metric, double value, double ceiling) {
+        assertTrue(metric + " is " + value + ", over " + ceiling, value <= ceiling);
+    }
+}